@@ -44,7 +44,8 @@ CREATE TABLE `appointments` (
     `doctorId` VARCHAR(64) NOT NULL,
     `datetime` DATETIME NOT NULL,
     `status` VARCHAR(32) NOT NULL,
-    `notes` TEXT
+    `notes` TEXT,
+    `durationMinutes` INT NOT NULL DEFAULT 30
 );
 
 DROP TABLE IF EXISTS `consultations`;
@@ -194,6 +195,15 @@ CREATE TABLE `stock_movements` (
     `notes` TEXT
 );
 
+DROP TABLE IF EXISTS `stock_checkpoints`;
+CREATE TABLE `stock_checkpoints` (
+    `checkpointAt` DATETIME(6) NOT NULL,
+    `medicineId` VARCHAR(64) NOT NULL,
+    `quantity` INT NOT NULL,
+    `value` DECIMAL(12,2),
+    PRIMARY KEY (`checkpointAt`, `medicineId`)
+);
+
 DROP TABLE IF EXISTS `audit_logs`;
 CREATE TABLE `audit_logs` (
     `id` VARCHAR(64) PRIMARY KEY,
@@ -205,7 +215,17 @@ CREATE TABLE `audit_logs` (
     `entityId` VARCHAR(64),
     `detail` TEXT,
     `result` VARCHAR(32),
-    `ipAddress` VARCHAR(64)
+    `ipAddress` VARCHAR(64),
+    `hash` CHAR(64)
+);
+
+DROP TABLE IF EXISTS `audit_checkpoints`;
+CREATE TABLE `audit_checkpoints` (
+    `sequence` BIGINT PRIMARY KEY,
+    `entryId` VARCHAR(64) NOT NULL,
+    `chainHash` CHAR(64) NOT NULL,
+    `signature` CHAR(64) NOT NULL,
+    `createdAt` DATETIME(6) NOT NULL
 );
 
 SET FOREIGN_KEY_CHECKS = 1;
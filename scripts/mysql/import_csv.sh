@@ -31,7 +31,9 @@ TABLES=(
     payments
     insurance_claims
     stock_movements
+    stock_checkpoints
     audit_logs
+    audit_checkpoints
 )
 
 mysql \
@@ -42,12 +44,9 @@ mysql \
     --local-infile=1 \
     -e "SET GLOBAL local_infile = 1;" >/dev/null 2>&1 || true
 
-for table in "${TABLES[@]}"; do
-    CSV_FILE="${DATA_DIR}/${table}.csv"
-    if [ ! -f "${CSV_FILE}" ]; then
-        echo "跳过 ${table}：未找到 ${CSV_FILE}" >&2
-        continue
-    fi
+import_file() {
+    local table=$1
+    local CSV_FILE=$2
     echo "导入 ${CSV_FILE} -> ${MYSQL_DATABASE}.${table}"
     header=$(head -n 1 "${CSV_FILE}")
     columns=$(echo "${header}" | sed 's/`/``/g; s/|/`,`/g; s/^/`/; s/$/`/')
@@ -68,6 +67,24 @@ SQL
         --local-infile=1 \
         --default-character-set=utf8mb4 \
         -e "${sql}"
+}
+
+for table in "${TABLES[@]}"; do
+    CSV_FILE="${DATA_DIR}/${table}.csv"
+    PARTITION_DIR="${DATA_DIR}/${table}"
+    if [ -d "${PARTITION_DIR}" ]; then
+        # 按月分区的表（审计日志、库存流水）：仅导入热分区，归档分区位于 archive/ 下
+        for partition in "${PARTITION_DIR}"/*.csv; do
+            [ -f "${partition}" ] || continue
+            [ "$(basename "${partition}")" = "manifest.csv" ] && continue
+            import_file "${table}" "${partition}"
+        done
+    elif [ -f "${CSV_FILE}" ]; then
+        import_file "${table}" "${CSV_FILE}"
+    else
+        echo "跳过 ${table}：未找到 ${CSV_FILE}" >&2
+        continue
+    fi
     echo "完成 ${table}"
     echo
 done
@@ -1,6 +1,7 @@
 package clinic;
 
 import clinic.persistence.AppointmentRepository;
+import clinic.persistence.AuditCheckpointRepository;
 import clinic.persistence.AuditLogRepository;
 import clinic.persistence.CalendarEventRepository;
 import clinic.persistence.CaseRecordRepository;
@@ -15,11 +16,14 @@ import clinic.persistence.MeetingMinuteRepository;
 import clinic.persistence.PaymentRepository;
 import clinic.persistence.PatientRepository;
 import clinic.persistence.PrescriptionRepository;
+import clinic.persistence.StockCheckpointRepository;
 import clinic.persistence.StockMovementRepository;
 import clinic.persistence.UserRepository;
 import clinic.persistence.WorkProgressRepository;
 import clinic.service.AppointmentService;
+import clinic.service.AppointmentSlotService;
 import clinic.service.AuthService;
+import clinic.service.FinanceViewService;
 import clinic.service.CalendarEventService;
 import clinic.service.CaseRecordService;
 import clinic.service.ConsultationService;
@@ -34,15 +38,18 @@ import clinic.service.MeetingMinuteService;
 import clinic.service.PatientService;
 import clinic.service.PharmacyService;
 import clinic.service.PaymentService;
+import clinic.service.SessionStore;
 import clinic.service.WorkProgressService;
 
 import java.nio.file.Path;
 
 public class AppContext {
     private final AuthService authService;
+    private final SessionStore sessionStore;
     private final PatientService patientService;
     private final DoctorService doctorService;
     private final AppointmentService appointmentService;
+    private final AppointmentSlotService appointmentSlotService;
     private final ConsultationService consultationService;
     private final PharmacyService pharmacyService;
     private final ExpertSessionService expertSessionService;
@@ -54,6 +61,7 @@ public class AppContext {
     private final InsightService insightService;
     private final PaymentService paymentService;
     private final InsuranceClaimService insuranceClaimService;
+    private final FinanceViewService financeViewService;
     private final InventoryService inventoryService;
     private final AuditService auditService;
 
@@ -75,7 +83,9 @@ public class AppContext {
         Path payments = dataDirectory.resolve("payments.csv");
         Path insuranceClaims = dataDirectory.resolve("insurance_claims.csv");
         Path stockMovements = dataDirectory.resolve("stock_movements.csv");
+        Path stockCheckpoints = dataDirectory.resolve("stock_checkpoints.csv");
         Path auditLogs = dataDirectory.resolve("audit_logs.csv");
+        Path auditCheckpoints = dataDirectory.resolve("audit_checkpoints.csv");
 
         UserRepository userRepository = new UserRepository(users);
         PatientRepository patientRepository = new PatientRepository(patients);
@@ -94,14 +104,16 @@ public class AppContext {
     PaymentRepository paymentRepository = new PaymentRepository(payments);
     InsuranceClaimRepository insuranceClaimRepository = new InsuranceClaimRepository(insuranceClaims);
     StockMovementRepository stockMovementRepository = new StockMovementRepository(stockMovements);
+    StockCheckpointRepository stockCheckpointRepository = new StockCheckpointRepository(stockCheckpoints);
     AuditLogRepository auditLogRepository = new AuditLogRepository(auditLogs);
+    AuditCheckpointRepository auditCheckpointRepository = new AuditCheckpointRepository(auditCheckpoints);
 
         this.authService = new AuthService(userRepository, patientRepository);
+        this.sessionStore = new SessionStore();
         this.patientService = new PatientService(patientRepository);
         this.doctorService = new DoctorService(doctorRepository);
         this.appointmentService = new AppointmentService(appointmentRepository);
         this.consultationService = new ConsultationService(consultationRepository);
-        this.pharmacyService = new PharmacyService(medicineRepository, prescriptionRepository);
         this.expertSessionService = new ExpertSessionService(expertSessionRepository, expertParticipantRepository);
         this.caseRecordService = new CaseRecordService(caseRecordRepository);
         this.workProgressService = new WorkProgressService(workProgressRepository);
@@ -109,9 +121,20 @@ public class AppContext {
         this.meetingMinuteService = new MeetingMinuteService(meetingMinuteRepository);
         this.expertAdviceService = new ExpertAdviceService(expertAdviceRepository);
         this.paymentService = new PaymentService(paymentRepository);
-        this.insuranceClaimService = new InsuranceClaimService(insuranceClaimRepository);
-        this.inventoryService = new InventoryService(stockMovementRepository);
-        this.auditService = new AuditService(auditLogRepository);
+        this.insuranceClaimService = new InsuranceClaimService(insuranceClaimRepository, this.paymentService);
+        this.financeViewService = new FinanceViewService(this.paymentService, this.insuranceClaimService, this.patientService);
+        this.inventoryService = new InventoryService(stockMovementRepository, stockCheckpointRepository);
+        this.pharmacyService = new PharmacyService(medicineRepository, prescriptionRepository, this.inventoryService);
+        this.auditService = new AuditService(
+            auditLogRepository,
+            auditCheckpointRepository,
+            dataDirectory.resolve("audit_chain.key")
+        );
+        this.appointmentSlotService = new AppointmentSlotService(
+            this.doctorService,
+            this.appointmentService,
+            this.calendarEventService
+        );
         this.insightService = new InsightService(
             this.patientService,
             this.doctorService,
@@ -126,6 +149,10 @@ public class AppContext {
         return authService;
     }
 
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
     public PatientService getPatientService() {
         return patientService;
     }
@@ -138,6 +165,10 @@ public class AppContext {
         return appointmentService;
     }
 
+    public AppointmentSlotService getAppointmentSlotService() {
+        return appointmentSlotService;
+    }
+
     public ConsultationService getConsultationService() {
         return consultationService;
     }
@@ -182,6 +213,10 @@ public class AppContext {
         return insuranceClaimService;
     }
 
+    public FinanceViewService getFinanceViewService() {
+        return financeViewService;
+    }
+
     public InventoryService getInventoryService() {
         return inventoryService;
     }
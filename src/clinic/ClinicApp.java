@@ -1,16 +1,29 @@
 package clinic;
 
 import clinic.model.User;
+import clinic.persistence.CsvDataStore;
 import clinic.ui.LoginFrame;
 
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class ClinicApp {
+    private static volatile AppContext activeContext;
+
     public static void main(String[] args) {
+        Path dataDirectory = Paths.get("data");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            flushAuditLog();
+            compactData(dataDirectory);
+        }, "clinic-compaction"));
         SwingUtilities.invokeLater(() -> {
-            AppContext context = new AppContext(Paths.get("data"));
+            AppContext context = new AppContext(dataDirectory);
+            activeContext = context;
             seedData(context);
+            archiveHistory(context);
+            context.getPharmacyService().startExpiryMonitor();
             LoginFrame frame = new LoginFrame(context, ClinicApp::onLoginSuccess);
             frame.setVisible(true);
         });
@@ -22,6 +35,36 @@ public class ClinicApp {
         mainFrame.setVisible(true);
     }
 
+    private static void flushAuditLog() {
+        AppContext context = activeContext;
+        if (context == null) {
+            return;
+        }
+        try {
+            context.getAuditService().shutdown();
+        } catch (IOException ex) {
+            System.err.println("写入审计日志失败: " + ex.getMessage());
+        }
+    }
+
+    private static void compactData(Path dataDirectory) {
+        try {
+            CsvDataStore.compactDirectory(dataDirectory);
+        } catch (IOException ex) {
+            System.err.println("生成数据快照失败: " + ex.getMessage());
+        }
+    }
+
+    private static void archiveHistory(AppContext context) {
+        try {
+            context.getAuditService().archiveColdMonths();
+            context.getInventoryService().archiveColdMonths();
+            context.getInventoryService().createCheckpointIfNeeded();
+        } catch (IOException ex) {
+            System.err.println("归档历史分区失败: " + ex.getMessage());
+        }
+    }
+
     private static void seedData(AppContext context) {
         try {
             if (!context.getAuthService().userExists("doctor")) {
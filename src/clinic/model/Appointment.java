@@ -4,20 +4,29 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 public class Appointment {
+    public static final int DEFAULT_DURATION_MINUTES = 30;
+
     private final String id;
     private final String patientId;
     private final String doctorId;
     private final LocalDateTime dateTime;
     private final String status;
     private final String notes;
+    private final int durationMinutes;
 
     public Appointment(String id, String patientId, String doctorId, LocalDateTime dateTime, String status, String notes) {
+        this(id, patientId, doctorId, dateTime, status, notes, DEFAULT_DURATION_MINUTES);
+    }
+
+    public Appointment(String id, String patientId, String doctorId, LocalDateTime dateTime, String status, String notes,
+                       int durationMinutes) {
         this.id = Objects.requireNonNull(id);
         this.patientId = Objects.requireNonNull(patientId);
         this.doctorId = Objects.requireNonNull(doctorId);
         this.dateTime = Objects.requireNonNull(dateTime);
         this.status = status == null ? "PENDING" : status;
         this.notes = notes == null ? "" : notes;
+        this.durationMinutes = durationMinutes > 0 ? durationMinutes : DEFAULT_DURATION_MINUTES;
     }
 
     public String getId() {
@@ -43,4 +52,16 @@ public class Appointment {
     public String getNotes() {
         return notes;
     }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public LocalDateTime getEndTime() {
+        return dateTime.plusMinutes(durationMinutes);
+    }
+
+    public Appointment withStatus(String newStatus) {
+        return new Appointment(id, patientId, doctorId, dateTime, newStatus, notes, durationMinutes);
+    }
 }
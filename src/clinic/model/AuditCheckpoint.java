@@ -0,0 +1,40 @@
+package clinic.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class AuditCheckpoint {
+    private final long sequence;
+    private final String entryId;
+    private final String chainHash;
+    private final String signature;
+    private final LocalDateTime createdAt;
+
+    public AuditCheckpoint(long sequence, String entryId, String chainHash, String signature, LocalDateTime createdAt) {
+        this.sequence = sequence;
+        this.entryId = Objects.requireNonNull(entryId);
+        this.chainHash = Objects.requireNonNull(chainHash);
+        this.signature = Objects.requireNonNull(signature);
+        this.createdAt = createdAt == null ? LocalDateTime.now() : createdAt;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getEntryId() {
+        return entryId;
+    }
+
+    public String getChainHash() {
+        return chainHash;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
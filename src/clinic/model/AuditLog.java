@@ -14,6 +14,7 @@ public class AuditLog {
     private final String detail;
     private final String result;
     private final String ipAddress;
+    private final String hash;
 
     public AuditLog(String id,
                     LocalDateTime timestamp,
@@ -25,6 +26,20 @@ public class AuditLog {
                     String detail,
                     String result,
                     String ipAddress) {
+        this(id, timestamp, userId, role, action, entityType, entityId, detail, result, ipAddress, null);
+    }
+
+    public AuditLog(String id,
+                    LocalDateTime timestamp,
+                    String userId,
+                    String role,
+                    String action,
+                    String entityType,
+                    String entityId,
+                    String detail,
+                    String result,
+                    String ipAddress,
+                    String hash) {
         this.id = Objects.requireNonNull(id);
         this.timestamp = timestamp == null ? LocalDateTime.now() : timestamp;
         this.userId = userId;
@@ -35,6 +50,7 @@ public class AuditLog {
         this.detail = detail == null ? "" : detail;
         this.result = result == null ? "SUCCESS" : result;
         this.ipAddress = ipAddress;
+        this.hash = hash;
     }
 
     public String getId() {
@@ -76,4 +92,12 @@ public class AuditLog {
     public String getIpAddress() {
         return ipAddress;
     }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public AuditLog withHash(String newHash) {
+        return new AuditLog(id, timestamp, userId, role, action, entityType, entityId, detail, result, ipAddress, newHash);
+    }
 }
@@ -0,0 +1,41 @@
+package clinic.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class CostLayer {
+    public enum Kind {
+        RECEIPT,
+        DEFICIT,
+        VARIANCE,
+        LAST_UNIT_COST
+    }
+
+    private final String medicineId;
+    private final Kind kind;
+    private final int quantity;
+    private final BigDecimal value;
+
+    public CostLayer(String medicineId, Kind kind, int quantity, BigDecimal value) {
+        this.medicineId = Objects.requireNonNull(medicineId);
+        this.kind = Objects.requireNonNull(kind);
+        this.quantity = quantity;
+        this.value = value == null ? BigDecimal.ZERO : value;
+    }
+
+    public String getMedicineId() {
+        return medicineId;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+}
@@ -43,4 +43,8 @@ public class Medicine {
     public LocalDate getExpiryDate() {
         return expiryDate;
     }
+
+    public Medicine withStock(int newStock) {
+        return new Medicine(id, name, specification, newStock, unit, expiryDate);
+    }
 }
@@ -51,7 +51,7 @@ public class Payment {
         this.method = method == null ? "CASH" : method;
         this.status = status == null ? Status.PENDING : status;
         this.insuranceClaimId = insuranceClaimId;
-        this.createdAt = createdAt == null ? LocalDateTime.now() : createdAt;
+        this.createdAt = createdAt;
         this.paidAt = paidAt;
     }
 
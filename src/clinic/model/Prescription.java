@@ -42,4 +42,8 @@ public class Prescription {
     public String getStatus() {
         return status;
     }
+
+    public Prescription withStatus(String newStatus) {
+        return new Prescription(id, consultationId, medicineId, quantity, usage, newStatus);
+    }
 }
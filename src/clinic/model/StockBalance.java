@@ -0,0 +1,44 @@
+package clinic.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class StockBalance {
+    private final String medicineId;
+    private final int quantity;
+    private final BigDecimal value;
+    private final LocalDateTime asOf;
+
+    public StockBalance(String medicineId, int quantity, BigDecimal value, LocalDateTime asOf) {
+        this.medicineId = Objects.requireNonNull(medicineId);
+        this.quantity = quantity;
+        this.value = value == null ? BigDecimal.ZERO : value;
+        this.asOf = asOf;
+    }
+
+    public static StockBalance empty(String medicineId) {
+        return new StockBalance(medicineId, 0, BigDecimal.ZERO, null);
+    }
+
+    public StockBalance apply(StockMovement movement) {
+        LocalDateTime latest = asOf == null || movement.getOccurredAt().isAfter(asOf) ? movement.getOccurredAt() : asOf;
+        return new StockBalance(medicineId, quantity + movement.getQuantity(), value.add(movement.getTotalCost()), latest);
+    }
+
+    public String getMedicineId() {
+        return medicineId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+}
@@ -6,10 +6,11 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class AppointmentRepository {
-    private static final String HEADER = "id|patientId|doctorId|datetime|status|notes";
+    private static final String HEADER = "id|patientId|doctorId|datetime|status|notes|durationMinutes";
 
     private final Path file;
 
@@ -30,7 +31,8 @@ public class AppointmentRepository {
                 row[2],
                 row[3].isEmpty() ? LocalDateTime.now() : LocalDateTime.parse(row[3]),
                 row[4],
-                row[5]
+                row[5],
+                row.length > 6 && !row[6].isEmpty() ? Integer.parseInt(row[6]) : Appointment.DEFAULT_DURATION_MINUTES
             ));
         }
         return appointments;
@@ -58,6 +60,25 @@ public class AppointmentRepository {
         write(appointments);
     }
 
+    public void saveAll(Collection<Appointment> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Appointment> appointments = findAll();
+        CsvDataStore.mergeByKey(appointments, batch, Appointment::getId);
+        write(appointments);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Appointment> appointments = findAll();
+        if (CsvDataStore.removeByKey(appointments, ids, Appointment::getId)) {
+            write(appointments);
+        }
+    }
+
     private void write(List<Appointment> appointments) throws IOException {
         List<String[]> rows = new ArrayList<>(appointments.size());
         for (Appointment appointment : appointments) {
@@ -67,7 +88,8 @@ public class AppointmentRepository {
                 appointment.getDoctorId(),
                 appointment.getDateTime().toString(),
                 appointment.getStatus(),
-                appointment.getNotes()
+                appointment.getNotes(),
+                Integer.toString(appointment.getDurationMinutes())
             });
         }
         CsvDataStore.writeRecords(file, HEADER, rows);
@@ -0,0 +1,136 @@
+package clinic.persistence;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands appended rows to a background thread that writes them to a partitioned store in batches.
+ * Callers only pay for a queue insert; the writer appends whatever has accumulated in one partition
+ * write and forces the touched files to disk at most once per sync interval. {@link #flush()} waits
+ * until everything queued so far is written and synced, which readers use for read-your-writes.
+ */
+final class AsyncAppendWriter {
+    private static final Logger LOGGER = Logger.getLogger(AsyncAppendWriter.class.getName());
+    private static final int MAX_BATCH = 1000;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final PartitionedCsvStore store;
+    private final long syncIntervalMillis;
+    private final BlockingQueue<String[]> queue;
+    private final Thread thread;
+    private long enqueued;
+    private long written;
+    private long lastSyncAt = System.currentTimeMillis();
+    private volatile boolean closed;
+
+    AsyncAppendWriter(PartitionedCsvStore store, String threadName, int capacity, long syncIntervalMillis) {
+        this.store = store;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void append(String[] row) throws IOException {
+        if (closed) {
+            store.append(List.<String[]>of(row));
+            return;
+        }
+        synchronized (this) {
+            enqueued++;
+        }
+        try {
+            queue.put(row);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            synchronized (this) {
+                enqueued--;
+            }
+            throw new InterruptedIOException("写入队列被中断");
+        }
+    }
+
+    void flush() throws IOException {
+        synchronized (this) {
+            long target = enqueued;
+            while (written < target) {
+                if (!thread.isAlive()) {
+                    throw new IOException("日志写入线程已停止，仍有 " + (target - written) + " 条未写入");
+                }
+                try {
+                    wait(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待日志写入被中断");
+                }
+            }
+        }
+        store.force();
+    }
+
+    void close() throws IOException {
+        flush();
+        closed = true;
+        try {
+            thread.join(syncIntervalMillis * 2);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<String[]> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                String[] first = queue.poll(syncIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    write(batch);
+                    batch.clear();
+                }
+                syncIfDue();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void write(List<String[]> batch) throws InterruptedException {
+        while (true) {
+            try {
+                store.append(batch);
+                break;
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "批量追加日志失败，将在稍后重试", ex);
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+        synchronized (this) {
+            written += batch.size();
+            notifyAll();
+        }
+    }
+
+    private void syncIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastSyncAt < syncIntervalMillis) {
+            return;
+        }
+        lastSyncAt = now;
+        try {
+            store.force();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "日志文件落盘失败", ex);
+        }
+    }
+}
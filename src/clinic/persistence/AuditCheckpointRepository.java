@@ -0,0 +1,52 @@
+package clinic.persistence;
+
+import clinic.model.AuditCheckpoint;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only list of signed audit chain checkpoints.
+ * A checkpoint with sequence N covers the first N audit rows and stores the chain hash of row N;
+ * an all-zero chain hash marks row N as the last unhashed legacy row before the chain starts.
+ */
+public class AuditCheckpointRepository {
+    private static final String HEADER = "sequence|entryId|chainHash|signature|createdAt";
+    private static final String TABLE_NAME = "audit_checkpoints";
+
+    private final Path file;
+
+    public AuditCheckpointRepository(Path file) {
+        this.file = file;
+    }
+
+    public List<AuditCheckpoint> findAll() throws IOException {
+        List<AuditCheckpoint> checkpoints = new ArrayList<>();
+        for (String[] row : CsvDataStore.readRecords(file)) {
+            if (row.length < 5 || row[0].isEmpty()) {
+                continue;
+            }
+            checkpoints.add(new AuditCheckpoint(
+                Long.parseLong(row[0]),
+                row[1],
+                row[2],
+                row[3],
+                row[4].isEmpty() ? null : LocalDateTime.parse(row[4])
+            ));
+        }
+        return checkpoints;
+    }
+
+    public void append(AuditCheckpoint checkpoint) throws IOException {
+        CsvDataStore.appendRecords(file, TABLE_NAME, HEADER, List.<String[]>of(new String[]{
+            Long.toString(checkpoint.getSequence()),
+            checkpoint.getEntryId(),
+            checkpoint.getChainHash(),
+            checkpoint.getSignature(),
+            checkpoint.getCreatedAt().toString()
+        }));
+    }
+}
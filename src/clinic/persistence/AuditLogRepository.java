@@ -5,20 +5,87 @@ import clinic.model.AuditLog;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class AuditLogRepository {
-    private static final String HEADER = "id|timestamp|userId|role|action|entityType|entityId|detail|result|ipAddress";
+    private static final String HEADER = "id|timestamp|userId|role|action|entityType|entityId|detail|result|ipAddress|hash";
+    private static final int TIMESTAMP_COLUMN = 1;
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
 
-    private final Path file;
+    private final PartitionedCsvStore store;
+    private AsyncAppendWriter writer;
 
     public AuditLogRepository(Path file) {
-        this.file = file;
+        this.store = new PartitionedCsvStore(file, HEADER, TIMESTAMP_COLUMN);
     }
 
     public List<AuditLog> findAll() throws IOException {
-        List<String[]> rows = CsvDataStore.readRecords(file);
+        flush();
+        return toLogs(store.readAll());
+    }
+
+    public List<AuditLog> findBetween(LocalDateTime from, LocalDateTime to) throws IOException {
+        flush();
+        return toLogs(store.readBetween(from, to));
+    }
+
+    public long count() throws IOException {
+        flush();
+        return store.rowCount();
+    }
+
+    public List<AuditLog> findFrom(long offset) throws IOException {
+        flush();
+        return toLogs(store.readFromRow(offset));
+    }
+
+    public void append(AuditLog log) throws IOException {
+        writer().append(toRow(log));
+    }
+
+    public void flush() throws IOException {
+        AsyncAppendWriter current = currentWriter();
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    public void appendAll(Collection<AuditLog> batch) throws IOException {
+        List<String[]> rows = new ArrayList<>(batch.size());
+        for (AuditLog log : batch) {
+            rows.add(toRow(log));
+        }
+        store.append(rows);
+    }
+
+    public int archiveBefore(YearMonth month) throws IOException {
+        flush();
+        return store.archiveBefore(month);
+    }
+
+    private synchronized AsyncAppendWriter writer() {
+        if (writer == null) {
+            writer = new AsyncAppendWriter(store, "clinic-audit-writer", QUEUE_CAPACITY, SYNC_INTERVAL_MILLIS);
+        }
+        return writer;
+    }
+
+    private synchronized AsyncAppendWriter currentWriter() {
+        return writer;
+    }
+
+    private List<AuditLog> toLogs(List<String[]> rows) {
         List<AuditLog> logs = new ArrayList<>(rows.size());
         for (String[] row : rows) {
             if (row.length < 10) {
@@ -34,34 +101,26 @@ public class AuditLogRepository {
                 row[6],
                 row[7],
                 row[8],
-                row[9]
+                row[9],
+                row.length > 10 && !row[10].isEmpty() ? row[10] : null
             ));
         }
         return logs;
     }
 
-    public void append(AuditLog log) throws IOException {
-        List<AuditLog> logs = findAll();
-        logs.add(log);
-        write(logs);
-    }
-
-    private void write(List<AuditLog> logs) throws IOException {
-        List<String[]> rows = new ArrayList<>(logs.size());
-        for (AuditLog log : logs) {
-            rows.add(new String[]{
-                log.getId(),
-                log.getTimestamp().toString(),
-                log.getUserId() == null ? "" : log.getUserId(),
-                log.getRole() == null ? "" : log.getRole(),
-                log.getAction() == null ? "" : log.getAction(),
-                log.getEntityType() == null ? "" : log.getEntityType(),
-                log.getEntityId() == null ? "" : log.getEntityId(),
-                log.getDetail(),
-                log.getResult(),
-                log.getIpAddress() == null ? "" : log.getIpAddress()
-            });
-        }
-        CsvDataStore.writeRecords(file, HEADER, rows);
+    private String[] toRow(AuditLog log) {
+        return new String[]{
+            log.getId(),
+            log.getTimestamp().toString(),
+            log.getUserId() == null ? "" : log.getUserId(),
+            log.getRole() == null ? "" : log.getRole(),
+            log.getAction() == null ? "" : log.getAction(),
+            log.getEntityType() == null ? "" : log.getEntityType(),
+            log.getEntityId() == null ? "" : log.getEntityId(),
+            log.getDetail(),
+            log.getResult(),
+            log.getIpAddress() == null ? "" : log.getIpAddress(),
+            log.getHash() == null ? "" : log.getHash()
+        };
     }
 }
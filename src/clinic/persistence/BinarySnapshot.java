@@ -0,0 +1,286 @@
+package clinic.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compact binary image of a CSV table, used to skip text decoding on cold start.
+ * Columns are stored column-major with a per-column encoding chosen at compaction time:
+ * epoch-encoded timestamps and dates, unscaled-long decimals, dictionary-coded low-cardinality
+ * values (statuses, methods, currencies) and length-prefixed UTF-8 for everything else.
+ * Every encoding is verified to round-trip to the exact original text, so a snapshot always
+ * yields the same records as the CSV it was taken from. The snapshot remembers the size and
+ * modification time of its source CSV and is ignored as soon as the CSV changes.
+ */
+public final class BinarySnapshot {
+    private static final Logger LOGGER = Logger.getLogger(BinarySnapshot.class.getName());
+    private static final int MAGIC = 0x434C534E;
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".snapshot";
+    private static final int MAX_DICTIONARY_SIZE = 256;
+    private static final long NULL_EPOCH = Long.MIN_VALUE;
+    private static final byte NULL_SCALE = -1;
+
+    private enum ColumnType {
+        STRING,
+        DICTIONARY,
+        TIMESTAMP,
+        DATE,
+        DECIMAL
+    }
+
+    private BinarySnapshot() {
+    }
+
+    public static Path snapshotPath(Path csvFile) {
+        String name = csvFile.getFileName().toString();
+        if (name.contains(".")) {
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+        return csvFile.resolveSibling(name + EXTENSION);
+    }
+
+    public static Optional<List<String[]>> readIfFresh(Path csvFile) {
+        Path snapshot = snapshotPath(csvFile);
+        if (Files.notExists(snapshot) || Files.notExists(csvFile)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                return Optional.empty();
+            }
+            long sourceModified = in.readLong();
+            long sourceSize = in.readLong();
+            if (sourceModified != Files.getLastModifiedTime(csvFile).toMillis() || sourceSize != Files.size(csvFile)) {
+                return Optional.empty();
+            }
+            return Optional.of(readBody(in));
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "快照读取失败，回退到 CSV: " + snapshot, ex);
+            return Optional.empty();
+        }
+    }
+
+    public static void write(Path csvFile, List<String[]> records) throws IOException {
+        Path snapshot = snapshotPath(csvFile);
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        long sourceModified = Files.getLastModifiedTime(csvFile).toMillis();
+        long sourceSize = Files.size(csvFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(sourceModified);
+            out.writeLong(sourceSize);
+            writeBody(out, records);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void delete(Path csvFile) throws IOException {
+        Files.deleteIfExists(snapshotPath(csvFile));
+    }
+
+    private static void writeBody(DataOutputStream out, List<String[]> records) throws IOException {
+        int width = 0;
+        for (String[] record : records) {
+            width = Math.max(width, record.length);
+        }
+        BinaryCodec.writeVarInt(out, records.size());
+        BinaryCodec.writeVarInt(out, width);
+        for (String[] record : records) {
+            BinaryCodec.writeVarInt(out, record.length);
+        }
+        for (int column = 0; column < width; column++) {
+            List<String> values = new ArrayList<>(records.size());
+            for (String[] record : records) {
+                if (column < record.length) {
+                    values.add(record[column] == null ? "" : record[column]);
+                }
+            }
+            writeColumn(out, values);
+        }
+    }
+
+    private static List<String[]> readBody(DataInputStream in) throws IOException {
+        int rowCount = BinaryCodec.readVarInt(in);
+        int width = BinaryCodec.readVarInt(in);
+        List<String[]> records = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            records.add(new String[BinaryCodec.readVarInt(in)]);
+        }
+        for (int column = 0; column < width; column++) {
+            ColumnType type = ColumnType.values()[in.readUnsignedByte()];
+            String[] dictionary = null;
+            if (type == ColumnType.DICTIONARY) {
+                dictionary = new String[BinaryCodec.readVarInt(in)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = BinaryCodec.readString(in);
+                }
+            }
+            for (String[] record : records) {
+                if (column < record.length) {
+                    record[column] = readValue(in, type, dictionary);
+                }
+            }
+        }
+        return records;
+    }
+
+    private static void writeColumn(DataOutputStream out, List<String> values) throws IOException {
+        ColumnType type = chooseType(values);
+        out.writeByte(type.ordinal());
+        switch (type) {
+            case TIMESTAMP:
+                for (String value : values) {
+                    if (value.isEmpty()) {
+                        out.writeLong(NULL_EPOCH);
+                    } else {
+                        LocalDateTime time = LocalDateTime.parse(value);
+                        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+                        BinaryCodec.writeVarInt(out, time.getNano());
+                    }
+                }
+                break;
+            case DATE:
+                for (String value : values) {
+                    out.writeLong(value.isEmpty() ? NULL_EPOCH : LocalDate.parse(value).toEpochDay());
+                }
+                break;
+            case DECIMAL:
+                for (String value : values) {
+                    if (value.isEmpty()) {
+                        out.writeByte(NULL_SCALE);
+                    } else {
+                        BigDecimal decimal = new BigDecimal(value);
+                        out.writeByte(decimal.scale());
+                        out.writeLong(decimal.unscaledValue().longValueExact());
+                    }
+                }
+                break;
+            case DICTIONARY:
+                Map<String, Integer> codes = new LinkedHashMap<>();
+                for (String value : values) {
+                    codes.putIfAbsent(value, codes.size());
+                }
+                BinaryCodec.writeVarInt(out, codes.size());
+                for (String entry : codes.keySet()) {
+                    BinaryCodec.writeString(out, entry);
+                }
+                for (String value : values) {
+                    BinaryCodec.writeVarInt(out, codes.get(value));
+                }
+                break;
+            default:
+                for (String value : values) {
+                    BinaryCodec.writeString(out, value);
+                }
+                break;
+        }
+    }
+
+    private static String readValue(DataInputStream in, ColumnType type, String[] dictionary) throws IOException {
+        switch (type) {
+            case TIMESTAMP: {
+                long seconds = in.readLong();
+                if (seconds == NULL_EPOCH) {
+                    return "";
+                }
+                return LocalDateTime.ofEpochSecond(seconds, BinaryCodec.readVarInt(in), ZoneOffset.UTC).toString();
+            }
+            case DATE: {
+                long days = in.readLong();
+                return days == NULL_EPOCH ? "" : LocalDate.ofEpochDay(days).toString();
+            }
+            case DECIMAL: {
+                byte scale = in.readByte();
+                if (scale == NULL_SCALE) {
+                    return "";
+                }
+                return BigDecimal.valueOf(in.readLong(), scale).toPlainString();
+            }
+            case DICTIONARY:
+                return dictionary[BinaryCodec.readVarInt(in)];
+            default:
+                return BinaryCodec.readString(in);
+        }
+    }
+
+    private static ColumnType chooseType(List<String> values) {
+        boolean timestamp = true;
+        boolean date = true;
+        boolean decimal = true;
+        boolean present = false;
+        Map<String, Boolean> distinct = new LinkedHashMap<>();
+        for (String value : values) {
+            if (distinct.size() <= MAX_DICTIONARY_SIZE) {
+                distinct.put(value, Boolean.TRUE);
+            }
+            if (value.isEmpty()) {
+                continue;
+            }
+            present = true;
+            timestamp = timestamp && isTimestamp(value);
+            date = date && isDate(value);
+            decimal = decimal && isDecimal(value);
+        }
+        if (present && timestamp) {
+            return ColumnType.TIMESTAMP;
+        }
+        if (present && date) {
+            return ColumnType.DATE;
+        }
+        if (present && decimal) {
+            return ColumnType.DECIMAL;
+        }
+        if (distinct.size() <= MAX_DICTIONARY_SIZE && distinct.size() * 2 <= values.size()) {
+            return ColumnType.DICTIONARY;
+        }
+        return ColumnType.STRING;
+    }
+
+    private static boolean isTimestamp(String value) {
+        try {
+            return LocalDateTime.parse(value).toString().equals(value);
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isDate(String value) {
+        try {
+            return LocalDate.parse(value).toString().equals(value);
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isDecimal(String value) {
+        try {
+            BigDecimal decimal = new BigDecimal(value);
+            return decimal.scale() >= 0
+                && decimal.scale() <= Byte.MAX_VALUE
+                && decimal.unscaledValue().bitLength() < Long.SIZE
+                && decimal.toPlainString().equals(value);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -67,6 +68,25 @@ public class CalendarEventRepository {
         write(events);
     }
 
+    public void saveAll(Collection<CalendarEvent> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<CalendarEvent> events = findAll();
+        CsvDataStore.mergeByKey(events, batch, CalendarEvent::getId);
+        write(events);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<CalendarEvent> events = findAll();
+        if (CsvDataStore.removeByKey(events, ids, CalendarEvent::getId)) {
+            write(events);
+        }
+    }
+
     private void write(List<CalendarEvent> events) throws IOException {
         List<String[]> rows = new ArrayList<>(events.size());
         for (CalendarEvent event : events) {
@@ -5,6 +5,7 @@ import clinic.model.CaseRecord;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -35,28 +36,54 @@ public class CaseRecordRepository {
             .collect(Collectors.toList());
     }
 
-    public void save(CaseRecord record) throws IOException {
+    public CaseRecord save(CaseRecord record) throws IOException {
         List<CaseRecord> records = findAll();
-        boolean updated = false;
+        CaseRecord previous = null;
         for (int i = 0; i < records.size(); i++) {
             if (records.get(i).getId().equals(record.getId())) {
-                records.set(i, record);
-                updated = true;
+                previous = records.set(i, record);
                 break;
             }
         }
-        if (!updated) {
+        if (previous == null) {
             records.add(record);
         }
         write(records);
+        return previous;
     }
 
-    public void deleteById(String id) throws IOException {
+    public CaseRecord deleteById(String id) throws IOException {
         List<CaseRecord> records = findAll();
-        records.removeIf(r -> r.getId().equals(id));
+        CaseRecord removed = null;
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i).getId().equals(id)) {
+                removed = records.remove(i);
+                break;
+            }
+        }
+        write(records);
+        return removed;
+    }
+
+    public void saveAll(Collection<CaseRecord> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<CaseRecord> records = findAll();
+        CsvDataStore.mergeByKey(records, batch, CaseRecord::getId);
         write(records);
     }
 
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<CaseRecord> records = findAll();
+        if (CsvDataStore.removeByKey(records, ids, CaseRecord::getId)) {
+            write(records);
+        }
+    }
+
     private void write(List<CaseRecord> records) throws IOException {
         List<String[]> rows = new ArrayList<>(records.size());
         for (CaseRecord record : records) {
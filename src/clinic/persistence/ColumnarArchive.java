@@ -0,0 +1,378 @@
+package clinic.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read-optimised columnar copy of the closed history of a table for historical analysis.
+ * The file records the boundary it was cut at: it holds the rows that were before closedBefore when written.
+ * Each column is encoded on its own (dictionary, delta-coded timestamps, scaled longs or plain text),
+ * deflated into an independent block and located through a directory at the head of the file,
+ * so a scan only reads and decodes the columns a query asks for.
+ */
+public final class ColumnarArchive {
+    private static final int MAGIC = 0x434C4341;
+    private static final int VERSION = 2;
+
+    public enum Encoding {
+        PLAIN,
+        DICTIONARY,
+        DELTA_TIMESTAMP,
+        SCALED_DECIMAL
+    }
+
+    private static final class BlockInfo {
+        private final Encoding encoding;
+        private final long offset;
+        private final int compressedLength;
+        private final int rawLength;
+
+        private BlockInfo(Encoding encoding, long offset, int compressedLength, int rawLength) {
+            this.encoding = encoding;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+        }
+    }
+
+    public static final class Column {
+        private final int size;
+        private final String[] strings;
+        private final int[] codes;
+        private final long[] values;
+        private final boolean[] present;
+        private final int scale;
+
+        private Column(int size, String[] strings, int[] codes, long[] values, boolean[] present, int scale) {
+            this.size = size;
+            this.strings = strings;
+            this.codes = codes;
+            this.values = values;
+            this.present = present;
+            this.scale = scale;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isNull(int row) {
+            return present != null && !present[row];
+        }
+
+        public String getString(int row) {
+            if (codes != null) {
+                return strings[codes[row]];
+            }
+            if (strings != null) {
+                return strings[row];
+            }
+            if (isNull(row)) {
+                return "";
+            }
+            return scale >= 0 ? getDecimal(row).toPlainString() : getTimestamp(row).toString();
+        }
+
+        public LocalDateTime getTimestamp(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            long nanos = values[row];
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+        }
+
+        public BigDecimal getDecimal(int row) {
+            return isNull(row) ? null : BigDecimal.valueOf(values[row], scale);
+        }
+
+        public long getUnscaled(int row) {
+            return values[row];
+        }
+
+        public int getScale() {
+            return scale;
+        }
+    }
+
+    private final Path file;
+    private final int rowCount;
+    private final LocalDateTime closedBefore;
+    private final long dataStart;
+    private final Map<String, BlockInfo> directory;
+
+    private ColumnarArchive(Path file, int rowCount, LocalDateTime closedBefore, long dataStart, Map<String, BlockInfo> directory) {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.closedBefore = closedBefore;
+        this.dataStart = dataStart;
+        this.directory = directory;
+    }
+
+    public static void write(Path target, String header, Map<String, Encoding> encodings, List<String[]> rows,
+                             LocalDateTime closedBefore) throws IOException {
+        String[] columns = header.split("\\|", -1);
+        List<byte[]> blocks = new ArrayList<>(columns.length);
+        List<Integer> rawLengths = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            byte[] raw = encodeColumn(encodings.getOrDefault(columns[i], Encoding.PLAIN), rows, i);
+            rawLengths.add(raw.length);
+            blocks.add(deflate(raw));
+        }
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(rows.size());
+            out.writeUTF(closedBefore.toString());
+            out.writeInt(columns.length);
+            long offset = 0;
+            for (int i = 0; i < columns.length; i++) {
+                out.writeUTF(columns[i]);
+                out.writeByte(encodings.getOrDefault(columns[i], Encoding.PLAIN).ordinal());
+                out.writeLong(offset);
+                out.writeInt(blocks.get(i).length);
+                out.writeInt(rawLengths.get(i));
+                offset += blocks.get(i).length;
+            }
+            for (byte[] block : blocks) {
+                out.write(block);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ColumnarArchive open(Path file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                throw new IOException("不是有效的列式归档文件: " + file);
+            }
+            int rowCount = in.readInt();
+            LocalDateTime closedBefore = LocalDateTime.parse(in.readUTF());
+            int columnCount = in.readInt();
+            Map<String, BlockInfo> directory = new LinkedHashMap<>();
+            for (int i = 0; i < columnCount; i++) {
+                String name = in.readUTF();
+                Encoding encoding = Encoding.values()[in.readUnsignedByte()];
+                directory.put(name, new BlockInfo(encoding, in.readLong(), in.readInt(), in.readInt()));
+            }
+            return new ColumnarArchive(file, rowCount, closedBefore, in.getFilePointer(), directory);
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public LocalDateTime getClosedBefore() {
+        return closedBefore;
+    }
+
+    public Set<String> getColumnNames() {
+        return Collections.unmodifiableSet(directory.keySet());
+    }
+
+    public Map<String, Column> scan(String... columnNames) throws IOException {
+        Map<String, Column> columns = new LinkedHashMap<>();
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            for (String name : columnNames) {
+                BlockInfo block = directory.get(name);
+                if (block == null) {
+                    throw new IllegalArgumentException("归档中不存在列: " + name);
+                }
+                byte[] compressed = new byte[block.compressedLength];
+                in.seek(dataStart + block.offset);
+                in.readFully(compressed);
+                byte[] raw = inflate(compressed, block.rawLength);
+                columns.put(name, decodeColumn(block.encoding, new DataInputStream(new ByteArrayInputStream(raw))));
+            }
+        }
+        return columns;
+    }
+
+    private static byte[] encodeColumn(Encoding encoding, List<String[]> rows, int index) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        List<String> values = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            values.add(row.length > index && row[index] != null ? row[index] : "");
+        }
+        BinaryCodec.writeVarInt(out, values.size());
+        switch (encoding) {
+            case DICTIONARY: {
+                Map<String, Integer> codes = new LinkedHashMap<>();
+                for (String value : values) {
+                    codes.putIfAbsent(value, codes.size());
+                }
+                BinaryCodec.writeVarInt(out, codes.size());
+                for (String entry : codes.keySet()) {
+                    BinaryCodec.writeString(out, entry);
+                }
+                for (String value : values) {
+                    BinaryCodec.writeVarInt(out, codes.get(value));
+                }
+                break;
+            }
+            case DELTA_TIMESTAMP: {
+                writePresence(out, values);
+                long previous = 0;
+                for (String value : values) {
+                    if (!value.isEmpty()) {
+                        LocalDateTime time = LocalDateTime.parse(value);
+                        long nanos = time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+                        BinaryCodec.writeZigZagLong(out, nanos - previous);
+                        previous = nanos;
+                    }
+                }
+                break;
+            }
+            case SCALED_DECIMAL: {
+                writePresence(out, values);
+                int scale = 0;
+                for (String value : values) {
+                    if (!value.isEmpty()) {
+                        scale = Math.max(scale, new BigDecimal(value).scale());
+                    }
+                }
+                BinaryCodec.writeVarInt(out, scale);
+                for (String value : values) {
+                    if (!value.isEmpty()) {
+                        BinaryCodec.writeZigZagLong(out, new BigDecimal(value).setScale(scale).unscaledValue().longValueExact());
+                    }
+                }
+                break;
+            }
+            default:
+                for (String value : values) {
+                    BinaryCodec.writeString(out, value);
+                }
+                break;
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private static Column decodeColumn(Encoding encoding, DataInputStream in) throws IOException {
+        int size = BinaryCodec.readVarInt(in);
+        switch (encoding) {
+            case DICTIONARY: {
+                String[] dictionary = new String[BinaryCodec.readVarInt(in)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = BinaryCodec.readString(in);
+                }
+                int[] codes = new int[size];
+                for (int i = 0; i < size; i++) {
+                    codes[i] = BinaryCodec.readVarInt(in);
+                }
+                return new Column(size, dictionary, codes, null, null, -1);
+            }
+            case DELTA_TIMESTAMP: {
+                boolean[] present = readPresence(in, size);
+                long[] values = new long[size];
+                long previous = 0;
+                for (int i = 0; i < size; i++) {
+                    if (present[i]) {
+                        previous += BinaryCodec.readZigZagLong(in);
+                        values[i] = previous;
+                    }
+                }
+                return new Column(size, null, null, values, present, -1);
+            }
+            case SCALED_DECIMAL: {
+                boolean[] present = readPresence(in, size);
+                int scale = BinaryCodec.readVarInt(in);
+                long[] values = new long[size];
+                for (int i = 0; i < size; i++) {
+                    if (present[i]) {
+                        values[i] = BinaryCodec.readZigZagLong(in);
+                    }
+                }
+                return new Column(size, null, null, values, present, scale);
+            }
+            default: {
+                String[] strings = new String[size];
+                for (int i = 0; i < size; i++) {
+                    strings[i] = BinaryCodec.readString(in);
+                }
+                return new Column(size, strings, null, null, null, -1);
+            }
+        }
+    }
+
+    private static void writePresence(DataOutputStream out, List<String> values) throws IOException {
+        byte[] bits = new byte[(values.size() + 7) / 8];
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).isEmpty()) {
+                bits[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.write(bits);
+    }
+
+    private static boolean[] readPresence(DataInputStream in, int size) throws IOException {
+        byte[] bits = new byte[(size + 7) / 8];
+        in.readFully(bits);
+        boolean[] present = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            present[i] = (bits[i >> 3] & (1 << (i & 7))) != 0;
+        }
+        return present;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, read, rawLength - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("列式归档数据不完整");
+                }
+                read += inflated;
+            }
+            return raw;
+        } catch (DataFormatException ex) {
+            throw new IOException("列式归档数据损坏", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ConsultationRepository {
@@ -37,28 +38,54 @@ public class ConsultationRepository {
         return consultations;
     }
 
-    public void save(Consultation consultation) throws IOException {
+    public Consultation save(Consultation consultation) throws IOException {
         List<Consultation> consultations = findAll();
-        boolean updated = false;
+        Consultation previous = null;
         for (int i = 0; i < consultations.size(); i++) {
             if (consultations.get(i).getId().equals(consultation.getId())) {
-                consultations.set(i, consultation);
-                updated = true;
+                previous = consultations.set(i, consultation);
                 break;
             }
         }
-        if (!updated) {
+        if (previous == null) {
             consultations.add(consultation);
         }
         write(consultations);
+        return previous;
     }
 
-    public void deleteById(String id) throws IOException {
+    public Consultation deleteById(String id) throws IOException {
         List<Consultation> consultations = findAll();
-        consultations.removeIf(c -> c.getId().equals(id));
+        Consultation removed = null;
+        for (int i = 0; i < consultations.size(); i++) {
+            if (consultations.get(i).getId().equals(id)) {
+                removed = consultations.remove(i);
+                break;
+            }
+        }
+        write(consultations);
+        return removed;
+    }
+
+    public void saveAll(Collection<Consultation> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Consultation> consultations = findAll();
+        CsvDataStore.mergeByKey(consultations, batch, Consultation::getId);
         write(consultations);
     }
 
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Consultation> consultations = findAll();
+        if (CsvDataStore.removeByKey(consultations, ids, Consultation::getId)) {
+            write(consultations);
+        }
+    }
+
     private void write(List<Consultation> consultations) throws IOException {
         List<String[]> rows = new ArrayList<>(consultations.size());
         for (Consultation consultation : consultations) {
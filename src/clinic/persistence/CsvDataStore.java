@@ -1,25 +1,61 @@
 package clinic.persistence;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 import clinic.persistence.mysql.CsvToMySqlMirror;
 
 public final class CsvDataStore {
+    private static final long DEFAULT_WRITE_BEHIND_INTERVAL_MS = 200;
+    private static final int INTERRUPT_CHECK_MASK = 1023;
+
+    private static volatile WriteBehindBuffer writeBehind = writeBehindFromEnvironment();
+
     private CsvDataStore() {
     }
 
     public static List<String[]> readRecords(Path file) throws IOException {
+        WriteBehindBuffer buffer = writeBehind;
+        if (buffer != null) {
+            List<String[]> pending = buffer.read(file);
+            if (pending != null) {
+                return pending;
+            }
+        }
         ensureFile(file);
-        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Optional<List<String[]>> snapshot = BinarySnapshot.readIfFresh(file);
+        if (snapshot.isPresent()) {
+            return snapshot.get();
+        }
+        return readCsv(file);
+    }
+
+    private static List<String[]> readCsv(Path file) throws IOException {
+        return parseLines(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    static List<String[]> parseLines(List<String> lines) throws InterruptedIOException {
         List<String[]> records = new ArrayList<>();
         for (int i = 1; i < lines.size(); i++) {
+            if ((i & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("读取数据被中断");
+            }
             String line = lines.get(i).trim();
             if (line.isEmpty()) {
                 continue;
@@ -30,14 +66,102 @@ public final class CsvDataStore {
     }
 
     public static void writeRecords(Path file, String header, List<String[]> records) throws IOException {
+        WriteBehindBuffer buffer = writeBehind;
+        if (buffer != null) {
+            buffer.put(file, header, records);
+            return;
+        }
+        writeThrough(file, header, records);
+    }
+
+    public static synchronized void enableWriteBehind(long intervalMillis) {
+        if (writeBehind == null) {
+            writeBehind = new WriteBehindBuffer(CsvDataStore::writeThrough, intervalMillis);
+        }
+    }
+
+    public static synchronized void disableWriteBehind() throws IOException {
+        WriteBehindBuffer buffer = writeBehind;
+        if (buffer != null) {
+            buffer.shutdown();
+            writeBehind = null;
+        }
+    }
+
+    public static void flush() throws IOException {
+        WriteBehindBuffer buffer = writeBehind;
+        if (buffer != null) {
+            buffer.flush();
+        }
+    }
+
+    private static void writeThrough(Path file, String header, List<String[]> records) throws IOException {
+        writeLocalRecords(file, header, records);
+        CsvToMySqlMirror.getInstance().mirror(file, header, records);
+    }
+
+    public static void appendRecords(Path file, String tableName, String header, List<String[]> records) throws IOException {
         ensureFile(file);
+        BinarySnapshot.delete(file);
+        List<String> lines = new ArrayList<>(records.size() + 1);
+        if (Files.size(file) == 0) {
+            lines.add(header);
+        }
+        for (String[] record : records) {
+            lines.add(String.join("|", record));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        CsvToMySqlMirror.getInstance().append(tableName, header, records);
+    }
+
+    static void writeLocalRecords(Path file, String header, List<String[]> records) throws IOException {
+        ensureFile(file);
+        BinarySnapshot.delete(file);
         List<String> lines = new ArrayList<>(records.size() + 1);
         lines.add(header);
         for (String[] record : records) {
             lines.add(String.join("|", record));
         }
         Files.write(file, lines, StandardCharsets.UTF_8);
-        CsvToMySqlMirror.getInstance().mirror(file, header, records);
+    }
+
+    public static void compact(Path file) throws IOException {
+        flush();
+        ensureFile(file);
+        BinarySnapshot.write(file, readCsv(file));
+    }
+
+    public static void compactDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : files) {
+                compact(file);
+            }
+        }
+    }
+
+    /**
+     * Replaces the records whose key matches one in the batch, in place, and appends the rest in batch order.
+     */
+    static <T> void mergeByKey(List<T> records, Collection<T> batch, Function<T, String> keyOf) {
+        Map<String, T> pending = new LinkedHashMap<>();
+        for (T record : batch) {
+            pending.put(keyOf.apply(record), record);
+        }
+        for (int i = 0; i < records.size() && !pending.isEmpty(); i++) {
+            T replacement = pending.remove(keyOf.apply(records.get(i)));
+            if (replacement != null) {
+                records.set(i, replacement);
+            }
+        }
+        records.addAll(pending.values());
+    }
+
+    static <T> boolean removeByKey(List<T> records, Collection<String> keys, Function<T, String> keyOf) {
+        Set<String> targets = new HashSet<>(keys);
+        return records.removeIf(record -> targets.contains(keyOf.apply(record)));
     }
 
     public static String randomId() {
@@ -48,6 +172,20 @@ public final class CsvDataStore {
         return LocalDateTime.now().toString();
     }
 
+    private static WriteBehindBuffer writeBehindFromEnvironment() {
+        boolean enabled = "true".equalsIgnoreCase(System.getenv().getOrDefault("CLINIC_WRITE_BEHIND_ENABLED", "false"))
+            || Boolean.getBoolean("clinic.write.behind.enabled");
+        if (!enabled) {
+            return null;
+        }
+        long interval = Long.getLong("clinic.write.behind.interval.ms", DEFAULT_WRITE_BEHIND_INTERVAL_MS);
+        String fromEnv = System.getenv("CLINIC_WRITE_BEHIND_INTERVAL_MS");
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            interval = Long.parseLong(fromEnv.trim());
+        }
+        return new WriteBehindBuffer(CsvDataStore::writeThrough, interval);
+    }
+
     private static void ensureFile(Path file) throws IOException {
         if (Files.notExists(file)) {
             Files.createDirectories(file.getParent());
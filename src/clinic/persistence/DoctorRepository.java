@@ -5,6 +5,7 @@ import clinic.model.Doctor;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 
@@ -62,6 +63,25 @@ public class DoctorRepository {
         write(doctors);
     }
 
+    public void saveAll(Collection<Doctor> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Doctor> doctors = findAll();
+        CsvDataStore.mergeByKey(doctors, batch, Doctor::getId);
+        write(doctors);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Doctor> doctors = findAll();
+        if (CsvDataStore.removeByKey(doctors, ids, Doctor::getId)) {
+            write(doctors);
+        }
+    }
+
     private void write(List<Doctor> doctors) throws IOException {
         List<String[]> rows = new ArrayList<>(doctors.size());
         for (Doctor doctor : doctors) {
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -44,28 +45,54 @@ public class ExpertAdviceRepository {
             .collect(Collectors.toList());
     }
 
-    public void save(ExpertAdvice advice) throws IOException {
+    public ExpertAdvice save(ExpertAdvice advice) throws IOException {
         List<ExpertAdvice> advices = findAll();
-        boolean updated = false;
+        ExpertAdvice previous = null;
         for (int i = 0; i < advices.size(); i++) {
             if (advices.get(i).getId().equals(advice.getId())) {
-                advices.set(i, advice);
-                updated = true;
+                previous = advices.set(i, advice);
                 break;
             }
         }
-        if (!updated) {
+        if (previous == null) {
             advices.add(advice);
         }
         write(advices);
+        return previous;
     }
 
-    public void deleteById(String id) throws IOException {
+    public ExpertAdvice deleteById(String id) throws IOException {
         List<ExpertAdvice> advices = findAll();
-        advices.removeIf(a -> a.getId().equals(id));
+        ExpertAdvice removed = null;
+        for (int i = 0; i < advices.size(); i++) {
+            if (advices.get(i).getId().equals(id)) {
+                removed = advices.remove(i);
+                break;
+            }
+        }
+        write(advices);
+        return removed;
+    }
+
+    public void saveAll(Collection<ExpertAdvice> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<ExpertAdvice> advices = findAll();
+        CsvDataStore.mergeByKey(advices, batch, ExpertAdvice::getId);
         write(advices);
     }
 
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<ExpertAdvice> advices = findAll();
+        if (CsvDataStore.removeByKey(advices, ids, ExpertAdvice::getId)) {
+            write(advices);
+        }
+    }
+
     private void write(List<ExpertAdvice> advices) throws IOException {
         List<String[]> rows = new ArrayList<>(advices.size());
         for (ExpertAdvice advice : advices) {
@@ -5,7 +5,10 @@ import clinic.model.ExpertParticipant;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class ExpertParticipantRepository {
@@ -42,6 +45,30 @@ public class ExpertParticipantRepository {
         write(all);
     }
 
+    public void saveAll(Collection<ExpertParticipant> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<ExpertParticipant> all = findAll();
+        CsvDataStore.mergeByKey(all, batch, this::key);
+        write(all);
+    }
+
+    public void deleteAllBySessionId(Collection<String> sessionIds) throws IOException {
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+        Set<String> targets = new HashSet<>(sessionIds);
+        List<ExpertParticipant> all = findAll();
+        if (all.removeIf(p -> targets.contains(p.getSessionId()))) {
+            write(all);
+        }
+    }
+
+    private String key(ExpertParticipant participant) {
+        return participant.getSessionId() + "|" + participant.getParticipantId();
+    }
+
     private void write(List<ExpertParticipant> participants) throws IOException {
         List<String[]> rows = new ArrayList<>(participants.size());
         for (ExpertParticipant participant : participants) {
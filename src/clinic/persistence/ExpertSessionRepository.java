@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ExpertSessionRepository {
@@ -59,6 +60,25 @@ public class ExpertSessionRepository {
         write(sessions);
     }
 
+    public void saveAll(Collection<ExpertSession> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<ExpertSession> sessions = findAll();
+        CsvDataStore.mergeByKey(sessions, batch, ExpertSession::getId);
+        write(sessions);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<ExpertSession> sessions = findAll();
+        if (CsvDataStore.removeByKey(sessions, ids, ExpertSession::getId)) {
+            write(sessions);
+        }
+    }
+
     private void write(List<ExpertSession> sessions) throws IOException {
         List<String[]> rows = new ArrayList<>(sessions.size());
         for (ExpertSession session : sessions) {
@@ -5,15 +5,27 @@ import clinic.model.InsuranceClaim.Status;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class InsuranceClaimRepository {
     private static final String HEADER = "id|paymentId|insuranceType|coverageRatio|claimedAmount|approvedAmount|status|submittedAt|processedAt|notes";
+    private static final Map<String, ColumnarArchive.Encoding> ARCHIVE_ENCODINGS = Map.of(
+        "insuranceType", ColumnarArchive.Encoding.DICTIONARY,
+        "coverageRatio", ColumnarArchive.Encoding.SCALED_DECIMAL,
+        "claimedAmount", ColumnarArchive.Encoding.SCALED_DECIMAL,
+        "approvedAmount", ColumnarArchive.Encoding.SCALED_DECIMAL,
+        "status", ColumnarArchive.Encoding.DICTIONARY,
+        "submittedAt", ColumnarArchive.Encoding.DELTA_TIMESTAMP,
+        "processedAt", ColumnarArchive.Encoding.DELTA_TIMESTAMP
+    );
 
     private final Path file;
 
@@ -70,7 +82,51 @@ public class InsuranceClaimRepository {
         write(claims);
     }
 
+    public void saveAll(Collection<InsuranceClaim> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<InsuranceClaim> claims = findAll();
+        CsvDataStore.mergeByKey(claims, batch, InsuranceClaim::getId);
+        write(claims);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<InsuranceClaim> claims = findAll();
+        if (CsvDataStore.removeByKey(claims, ids, InsuranceClaim::getId)) {
+            write(claims);
+        }
+    }
+
+    public Path writeColumnarArchive(LocalDateTime closedBefore) throws IOException {
+        List<String[]> closed = new ArrayList<>();
+        for (String[] row : toRows(findAll())) {
+            if (!row[7].isEmpty() && LocalDateTime.parse(row[7]).isBefore(closedBefore)) {
+                closed.add(row);
+            }
+        }
+        Path target = archiveFile();
+        ColumnarArchive.write(target, HEADER, ARCHIVE_ENCODINGS, closed, closedBefore);
+        return target;
+    }
+
+    public Optional<ColumnarArchive> openColumnarArchive() throws IOException {
+        Path archive = archiveFile();
+        return Files.exists(archive) ? Optional.of(ColumnarArchive.open(archive)) : Optional.empty();
+    }
+
+    private Path archiveFile() {
+        return file.resolveSibling("archive").resolve("insurance_claims.col");
+    }
+
     private void write(List<InsuranceClaim> claims) throws IOException {
+        CsvDataStore.writeRecords(file, HEADER, toRows(claims));
+    }
+
+    private List<String[]> toRows(List<InsuranceClaim> claims) {
         List<String[]> rows = new ArrayList<>(claims.size());
         for (InsuranceClaim claim : claims) {
             rows.add(new String[]{
@@ -86,7 +142,7 @@ public class InsuranceClaimRepository {
                 claim.getNotes()
             });
         }
-        CsvDataStore.writeRecords(file, HEADER, rows);
+        return rows;
     }
 
     private Status parseStatus(String value) {
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class MedicineRepository {
@@ -58,6 +59,25 @@ public class MedicineRepository {
         write(medicines);
     }
 
+    public void saveAll(Collection<Medicine> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Medicine> medicines = findAll();
+        CsvDataStore.mergeByKey(medicines, batch, Medicine::getId);
+        write(medicines);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Medicine> medicines = findAll();
+        if (CsvDataStore.removeByKey(medicines, ids, Medicine::getId)) {
+            write(medicines);
+        }
+    }
+
     private void write(List<Medicine> medicines) throws IOException {
         List<String[]> rows = new ArrayList<>(medicines.size());
         for (Medicine medicine : medicines) {
@@ -7,6 +7,7 @@ import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -88,6 +89,25 @@ public class MeetingMinuteRepository {
         write(minutes);
     }
 
+    public void saveAll(Collection<MeetingMinute> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<MeetingMinute> minutes = findAll();
+        CsvDataStore.mergeByKey(minutes, batch, MeetingMinute::getId);
+        write(minutes);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<MeetingMinute> minutes = findAll();
+        if (CsvDataStore.removeByKey(minutes, ids, MeetingMinute::getId)) {
+            write(minutes);
+        }
+    }
+
     private void write(List<MeetingMinute> minutes) throws IOException {
         List<String[]> rows = new ArrayList<>(minutes.size());
         for (MeetingMinute minute : minutes) {
@@ -0,0 +1,352 @@
+package clinic.persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only table split into monthly partition files, e.g. {@code audit_logs/2026-10.csv}.
+ * A small {@code manifest.csv} keeps the time range, row count and state of each partition so that
+ * range queries only open the partitions they overlap. Appends touch a single partition file and
+ * months older than the hot window (CLINIC_ARCHIVE_HOT_MONTHS / clinic.archive.hot.months, default 12)
+ * can be moved into a gzip cold archive under {@code archive/}; recent months stay plain CSV.
+ * A legacy single-file table next to the directory is split into partitions on first access.
+ */
+public final class PartitionedCsvStore {
+    private static final String MANIFEST_HEADER = "partition|minTimestamp|maxTimestamp|rowCount|state";
+    private static final String MANIFEST_FILE = "manifest.csv";
+    private static final String ARCHIVE_DIRECTORY = "archive";
+    private static final int DEFAULT_HOT_MONTHS = 12;
+
+    public enum State {
+        HOT,
+        ARCHIVED
+    }
+
+    public static final class Partition {
+        private final YearMonth month;
+        private final LocalDateTime minTimestamp;
+        private final LocalDateTime maxTimestamp;
+        private final int rowCount;
+        private final State state;
+
+        Partition(YearMonth month, LocalDateTime minTimestamp, LocalDateTime maxTimestamp, int rowCount, State state) {
+            this.month = month;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.rowCount = rowCount;
+            this.state = state;
+        }
+
+        public YearMonth getMonth() {
+            return month;
+        }
+
+        public LocalDateTime getMinTimestamp() {
+            return minTimestamp;
+        }
+
+        public LocalDateTime getMaxTimestamp() {
+            return maxTimestamp;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return (from == null || !maxTimestamp.isBefore(from)) && (to == null || !minTimestamp.isAfter(to));
+        }
+
+        Partition withRows(LocalDateTime first, LocalDateTime last, int added) {
+            return new Partition(
+                month,
+                first.isBefore(minTimestamp) ? first : minTimestamp,
+                last.isAfter(maxTimestamp) ? last : maxTimestamp,
+                rowCount + added,
+                state
+            );
+        }
+
+        Partition withState(State newState) {
+            return new Partition(month, minTimestamp, maxTimestamp, rowCount, newState);
+        }
+    }
+
+    private final Path legacyFile;
+    private final Path directory;
+    private final String tableName;
+    private final String header;
+    private final int timestampColumn;
+    private final Set<YearMonth> unsynced = new HashSet<>();
+    private Map<YearMonth, Partition> manifest;
+
+    public PartitionedCsvStore(Path legacyFile, String header, int timestampColumn) {
+        String name = legacyFile.getFileName().toString();
+        this.tableName = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+        this.legacyFile = legacyFile;
+        this.directory = legacyFile.resolveSibling(tableName);
+        this.header = header;
+        this.timestampColumn = timestampColumn;
+    }
+
+    public synchronized List<Partition> listPartitions() throws IOException {
+        return new ArrayList<>(loadManifest().values());
+    }
+
+    public synchronized List<String[]> readAll() throws IOException {
+        return readBetween(null, null);
+    }
+
+    public synchronized List<String[]> readBetween(LocalDateTime from, LocalDateTime to) throws IOException {
+        List<String[]> records = new ArrayList<>();
+        for (Partition partition : loadManifest().values()) {
+            if (!partition.overlaps(from, to)) {
+                continue;
+            }
+            boolean fullyCovered = (from == null || !partition.getMinTimestamp().isBefore(from))
+                && (to == null || !partition.getMaxTimestamp().isAfter(to));
+            for (String[] record : readPartition(partition)) {
+                if (fullyCovered || inRange(timestampOf(record), from, to)) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    public synchronized long rowCount() throws IOException {
+        long count = 0;
+        for (Partition partition : loadManifest().values()) {
+            count += partition.getRowCount();
+        }
+        return count;
+    }
+
+    public synchronized List<String[]> readFromRow(long offset) throws IOException {
+        List<String[]> records = new ArrayList<>();
+        long skipped = 0;
+        for (Partition partition : loadManifest().values()) {
+            if (skipped + partition.getRowCount() <= offset) {
+                skipped += partition.getRowCount();
+                continue;
+            }
+            List<String[]> rows = readPartition(partition);
+            int from = (int) Math.max(0, Math.min(rows.size(), offset - skipped));
+            records.addAll(rows.subList(from, rows.size()));
+            skipped += rows.size();
+        }
+        return records;
+    }
+
+    public synchronized void append(List<String[]> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<YearMonth, Partition> partitions = loadManifest();
+        for (Map.Entry<YearMonth, List<String[]>> entry : groupByMonth(records).entrySet()) {
+            YearMonth month = entry.getKey();
+            Partition partition = partitions.get(month);
+            if (partition != null && partition.getState() == State.ARCHIVED) {
+                partition = restore(partition);
+            }
+            List<String[]> rows = entry.getValue();
+            CsvDataStore.appendRecords(partitionFile(month), tableName, header, rows);
+            unsynced.add(month);
+            Partition appended = summarize(month, rows);
+            partitions.put(month, partition == null
+                ? appended
+                : partition.withRows(appended.getMinTimestamp(), appended.getMaxTimestamp(), rows.size()));
+        }
+        writeManifest(partitions);
+    }
+
+    public synchronized void force() throws IOException {
+        for (YearMonth month : unsynced) {
+            Path file = partitionFile(month);
+            if (Files.exists(file)) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.force(false);
+                }
+            }
+        }
+        unsynced.clear();
+    }
+
+    public static YearMonth archiveCutoff(YearMonth current) {
+        return current.minusMonths(resolveHotMonths());
+    }
+
+    public synchronized int archiveBefore(YearMonth month) throws IOException {
+        Map<YearMonth, Partition> partitions = loadManifest();
+        int archived = 0;
+        for (Partition partition : new ArrayList<>(partitions.values())) {
+            if (partition.getState() != State.HOT || !partition.getMonth().isBefore(month)) {
+                continue;
+            }
+            Path source = partitionFile(partition.getMonth());
+            Path target = archiveFile(partition.getMonth());
+            Files.createDirectories(target.getParent());
+            try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(target))) {
+                Files.copy(source, out);
+            }
+            Files.delete(source);
+            BinarySnapshot.delete(source);
+            partitions.put(partition.getMonth(), partition.withState(State.ARCHIVED));
+            archived++;
+        }
+        if (archived > 0) {
+            writeManifest(partitions);
+        }
+        return archived;
+    }
+
+    private Partition restore(Partition partition) throws IOException {
+        Path target = partitionFile(partition.getMonth());
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(archiveFile(partition.getMonth())))) {
+            Files.copy(in, target);
+        }
+        Files.delete(archiveFile(partition.getMonth()));
+        return partition.withState(State.HOT);
+    }
+
+    private List<String[]> readPartition(Partition partition) throws IOException {
+        if (partition.getState() == State.HOT) {
+            return CsvDataStore.readRecords(partitionFile(partition.getMonth()));
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(archiveFile(partition.getMonth()))), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return CsvDataStore.parseLines(lines);
+    }
+
+    private Map<YearMonth, Partition> loadManifest() throws IOException {
+        if (manifest != null) {
+            return manifest;
+        }
+        Path manifestFile = directory.resolve(MANIFEST_FILE);
+        Map<YearMonth, Partition> partitions = new TreeMap<>();
+        if (Files.exists(manifestFile)) {
+            for (String[] row : CsvDataStore.readRecords(manifestFile)) {
+                if (row.length < 5) {
+                    continue;
+                }
+                YearMonth month = YearMonth.parse(row[0]);
+                partitions.put(month, new Partition(
+                    month,
+                    LocalDateTime.parse(row[1]),
+                    LocalDateTime.parse(row[2]),
+                    Integer.parseInt(row[3]),
+                    State.valueOf(row[4])
+                ));
+            }
+            manifest = partitions;
+        } else {
+            manifest = partitions;
+            migrateLegacyFile();
+        }
+        return manifest;
+    }
+
+    private void migrateLegacyFile() throws IOException {
+        Files.createDirectories(directory);
+        if (Files.notExists(legacyFile)) {
+            writeManifest(manifest);
+            return;
+        }
+        List<String[]> legacy = CsvDataStore.readRecords(legacyFile);
+        for (Map.Entry<YearMonth, List<String[]>> entry : groupByMonth(legacy).entrySet()) {
+            CsvDataStore.writeLocalRecords(partitionFile(entry.getKey()), header, entry.getValue());
+            manifest.put(entry.getKey(), summarize(entry.getKey(), entry.getValue()));
+        }
+        writeManifest(manifest);
+        BinarySnapshot.delete(legacyFile);
+        Files.move(legacyFile, legacyFile.resolveSibling(legacyFile.getFileName() + ".migrated"));
+    }
+
+    private void writeManifest(Map<YearMonth, Partition> partitions) throws IOException {
+        List<String[]> rows = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions.values()) {
+            rows.add(new String[]{
+                partition.getMonth().toString(),
+                partition.getMinTimestamp().toString(),
+                partition.getMaxTimestamp().toString(),
+                Integer.toString(partition.getRowCount()),
+                partition.getState().name()
+            });
+        }
+        CsvDataStore.writeLocalRecords(directory.resolve(MANIFEST_FILE), MANIFEST_HEADER, rows);
+        manifest = partitions;
+    }
+
+    private Partition summarize(YearMonth month, List<String[]> rows) {
+        LocalDateTime first = timestampOf(rows.get(0));
+        LocalDateTime last = first;
+        for (String[] row : rows) {
+            LocalDateTime timestamp = timestampOf(row);
+            first = timestamp.isBefore(first) ? timestamp : first;
+            last = timestamp.isAfter(last) ? timestamp : last;
+        }
+        return new Partition(month, first, last, rows.size(), State.HOT);
+    }
+
+    private Map<YearMonth, List<String[]>> groupByMonth(List<String[]> records) {
+        Map<YearMonth, List<String[]>> grouped = new LinkedHashMap<>();
+        for (String[] record : records) {
+            grouped.computeIfAbsent(YearMonth.from(timestampOf(record)), key -> new ArrayList<>()).add(record);
+        }
+        return grouped;
+    }
+
+    private LocalDateTime timestampOf(String[] record) {
+        if (record.length <= timestampColumn || record[timestampColumn].isEmpty()) {
+            return LocalDateTime.now();
+        }
+        return LocalDateTime.parse(record[timestampColumn]);
+    }
+
+    private boolean inRange(LocalDateTime timestamp, LocalDateTime from, LocalDateTime to) {
+        return (from == null || !timestamp.isBefore(from)) && (to == null || !timestamp.isAfter(to));
+    }
+
+    private Path partitionFile(YearMonth month) {
+        return directory.resolve(month + ".csv");
+    }
+
+    private Path archiveFile(YearMonth month) {
+        return directory.resolve(ARCHIVE_DIRECTORY).resolve(month + ".csv.gz");
+    }
+
+    private static int resolveHotMonths() {
+        String fromEnv = System.getenv("CLINIC_ARCHIVE_HOT_MONTHS");
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            return Integer.parseInt(fromEnv.trim());
+        }
+        return Integer.getInteger("clinic.archive.hot.months", DEFAULT_HOT_MONTHS);
+    }
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class PatientRepository {
@@ -60,6 +61,25 @@ public class PatientRepository {
         write(patients);
     }
 
+    public void saveAll(Collection<Patient> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Patient> patients = findAll();
+        CsvDataStore.mergeByKey(patients, batch, Patient::getId);
+        write(patients);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Patient> patients = findAll();
+        if (CsvDataStore.removeByKey(patients, ids, Patient::getId)) {
+            write(patients);
+        }
+    }
+
     private void write(List<Patient> patients) throws IOException {
         List<String[]> rows = new ArrayList<>(patients.size());
         for (Patient patient : patients) {
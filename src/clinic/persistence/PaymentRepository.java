@@ -6,15 +6,27 @@ import clinic.model.Payment.Status;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class PaymentRepository {
     private static final String HEADER = "id|patientId|relatedType|relatedId|amount|currency|method|status|insuranceClaimId|createdAt|paidAt";
+    private static final Map<String, ColumnarArchive.Encoding> ARCHIVE_ENCODINGS = Map.of(
+        "relatedType", ColumnarArchive.Encoding.DICTIONARY,
+        "amount", ColumnarArchive.Encoding.SCALED_DECIMAL,
+        "currency", ColumnarArchive.Encoding.DICTIONARY,
+        "method", ColumnarArchive.Encoding.DICTIONARY,
+        "status", ColumnarArchive.Encoding.DICTIONARY,
+        "createdAt", ColumnarArchive.Encoding.DELTA_TIMESTAMP,
+        "paidAt", ColumnarArchive.Encoding.DELTA_TIMESTAMP
+    );
 
     private final Path file;
 
@@ -72,7 +84,51 @@ public class PaymentRepository {
         write(payments);
     }
 
+    public void saveAll(Collection<Payment> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Payment> payments = findAll();
+        CsvDataStore.mergeByKey(payments, batch, Payment::getId);
+        write(payments);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Payment> payments = findAll();
+        if (CsvDataStore.removeByKey(payments, ids, Payment::getId)) {
+            write(payments);
+        }
+    }
+
+    public Path writeColumnarArchive(LocalDateTime closedBefore) throws IOException {
+        List<String[]> closed = new ArrayList<>();
+        for (String[] row : toRows(findAll())) {
+            if (!row[9].isEmpty() && LocalDateTime.parse(row[9]).isBefore(closedBefore)) {
+                closed.add(row);
+            }
+        }
+        Path target = archiveFile();
+        ColumnarArchive.write(target, HEADER, ARCHIVE_ENCODINGS, closed, closedBefore);
+        return target;
+    }
+
+    public Optional<ColumnarArchive> openColumnarArchive() throws IOException {
+        Path archive = archiveFile();
+        return Files.exists(archive) ? Optional.of(ColumnarArchive.open(archive)) : Optional.empty();
+    }
+
+    private Path archiveFile() {
+        return file.resolveSibling("archive").resolve("payments.col");
+    }
+
     private void write(List<Payment> payments) throws IOException {
+        CsvDataStore.writeRecords(file, HEADER, toRows(payments));
+    }
+
+    private List<String[]> toRows(List<Payment> payments) {
         List<String[]> rows = new ArrayList<>(payments.size());
         for (Payment payment : payments) {
             rows.add(new String[]{
@@ -89,7 +145,7 @@ public class PaymentRepository {
                 payment.getPaidAt() == null ? "" : payment.getPaidAt().toString()
             });
         }
-        CsvDataStore.writeRecords(file, HEADER, rows);
+        return rows;
     }
 
     private RelatedType parseRelatedType(String value) {
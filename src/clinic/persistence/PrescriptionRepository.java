@@ -5,6 +5,7 @@ import clinic.model.Prescription;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class PrescriptionRepository {
@@ -57,6 +58,25 @@ public class PrescriptionRepository {
         write(prescriptions);
     }
 
+    public void saveAll(Collection<Prescription> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Prescription> prescriptions = findAll();
+        CsvDataStore.mergeByKey(prescriptions, batch, Prescription::getId);
+        write(prescriptions);
+    }
+
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Prescription> prescriptions = findAll();
+        if (CsvDataStore.removeByKey(prescriptions, ids, Prescription::getId)) {
+            write(prescriptions);
+        }
+    }
+
     private void write(List<Prescription> prescriptions) throws IOException {
         List<String[]> rows = new ArrayList<>(prescriptions.size());
         for (Prescription prescription : prescriptions) {
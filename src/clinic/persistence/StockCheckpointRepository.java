@@ -0,0 +1,203 @@
+package clinic.persistence;
+
+import clinic.model.CostLayer;
+import clinic.model.StockBalance;
+import clinic.persistence.mysql.CsvToMySqlMirror;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Per-medicine stock balances captured at a point in time, one file per checkpoint under
+ * {@code stock_checkpoints/} named after its checkpointAt, which covers all movements up to and including it.
+ * A sibling {@code .layers.csv} file holds the open cost layers of the costing method in use at that time.
+ * Only the newest checkpoints are kept (CLINIC_STOCK_CHECKPOINT_RETAIN / clinic.stock.checkpoint.retain),
+ * so a lookup lists a bounded directory and parses a single file.
+ * A legacy single-file table next to the directory is split on first access.
+ */
+public class StockCheckpointRepository {
+    private static final String HEADER = "checkpointAt|medicineId|quantity|value";
+    private static final String TABLE_NAME = "stock_checkpoints";
+    private static final String LAYERS_HEADER = "costingMethod|medicineId|kind|quantity|value";
+    private static final String EXTENSION = ".csv";
+    private static final String LAYERS_EXTENSION = ".layers.csv";
+    private static final int DEFAULT_RETAIN = 30;
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSSSSSSSS");
+
+    private final Path legacyFile;
+    private final Path directory;
+    private final int retain;
+    private boolean migrated;
+
+    public StockCheckpointRepository(Path file) {
+        this(file, resolveRetain());
+    }
+
+    public StockCheckpointRepository(Path file, int retain) {
+        if (retain < 1) {
+            throw new IllegalArgumentException("库存检查点保留数量必须大于0");
+        }
+        this.legacyFile = file;
+        this.directory = file.resolveSibling(TABLE_NAME);
+        this.retain = retain;
+    }
+
+    public synchronized Map.Entry<LocalDateTime, List<StockBalance>> findLatestAtOrBefore(LocalDateTime time) throws IOException {
+        TreeMap<LocalDateTime, Path> files = listFiles();
+        Map.Entry<LocalDateTime, Path> entry = time == null ? files.lastEntry() : files.floorEntry(time);
+        if (entry == null) {
+            return null;
+        }
+        List<StockBalance> balances = new ArrayList<>();
+        for (String[] row : CsvDataStore.readRecords(entry.getValue())) {
+            if (row.length < 4 || row[1].isEmpty()) {
+                continue;
+            }
+            balances.add(new StockBalance(
+                row[1],
+                Integer.parseInt(row[2]),
+                row[3].isEmpty() ? BigDecimal.ZERO : new BigDecimal(row[3]),
+                entry.getKey()
+            ));
+        }
+        return Map.entry(entry.getKey(), balances);
+    }
+
+    public synchronized Optional<List<CostLayer>> findCostLayers(LocalDateTime checkpointAt, String costingMethod) throws IOException {
+        Path file = layersFileOf(checkpointAt);
+        if (Files.notExists(file)) {
+            return Optional.empty();
+        }
+        List<CostLayer> layers = new ArrayList<>();
+        for (String[] row : CsvDataStore.readRecords(file)) {
+            if (row.length < 5 || row[1].isEmpty()) {
+                continue;
+            }
+            if (!row[0].equals(costingMethod)) {
+                return Optional.empty();
+            }
+            layers.add(new CostLayer(
+                row[1],
+                CostLayer.Kind.valueOf(row[2]),
+                Integer.parseInt(row[3]),
+                new BigDecimal(row[4])
+            ));
+        }
+        return Optional.of(layers);
+    }
+
+    public synchronized void append(LocalDateTime checkpointAt,
+                                    Collection<StockBalance> balances,
+                                    String costingMethod,
+                                    Collection<CostLayer> layers) throws IOException {
+        TreeMap<LocalDateTime, Path> files = listFiles();
+        List<String[]> layerRows = new ArrayList<>(layers.size());
+        for (CostLayer layer : layers) {
+            layerRows.add(new String[]{
+                costingMethod,
+                layer.getMedicineId(),
+                layer.getKind().name(),
+                String.valueOf(layer.getQuantity()),
+                layer.getValue().toPlainString()
+            });
+        }
+        CsvDataStore.writeLocalRecords(layersFileOf(checkpointAt), LAYERS_HEADER, layerRows);
+        List<String[]> rows = toRows(checkpointAt, balances);
+        Path target = fileOf(checkpointAt);
+        CsvDataStore.writeLocalRecords(target, HEADER, rows);
+        CsvToMySqlMirror.getInstance().append(TABLE_NAME, HEADER, rows);
+        files.put(checkpointAt, target);
+        prune(files);
+    }
+
+    private TreeMap<LocalDateTime, Path> listFiles() throws IOException {
+        if (!migrated) {
+            migrateLegacyFile();
+            migrated = true;
+        }
+        TreeMap<LocalDateTime, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(LAYERS_EXTENSION)) {
+                    continue;
+                }
+                files.put(LocalDateTime.parse(name.substring(0, name.length() - EXTENSION.length()), FILE_NAME), file);
+            }
+        }
+        return files;
+    }
+
+    private void prune(TreeMap<LocalDateTime, Path> files) throws IOException {
+        while (files.size() > retain) {
+            Map.Entry<LocalDateTime, Path> oldest = files.pollFirstEntry();
+            Path layers = layersFileOf(oldest.getKey());
+            BinarySnapshot.delete(oldest.getValue());
+            BinarySnapshot.delete(layers);
+            Files.deleteIfExists(oldest.getValue());
+            Files.deleteIfExists(layers);
+        }
+    }
+
+    private void migrateLegacyFile() throws IOException {
+        Files.createDirectories(directory);
+        if (Files.notExists(legacyFile)) {
+            return;
+        }
+        TreeMap<LocalDateTime, List<String[]>> checkpoints = new TreeMap<>();
+        for (String[] row : CsvDataStore.readRecords(legacyFile)) {
+            if (row.length < 4 || row[0].isEmpty()) {
+                continue;
+            }
+            checkpoints.computeIfAbsent(LocalDateTime.parse(row[0]), key -> new ArrayList<>()).add(row);
+        }
+        while (checkpoints.size() > retain) {
+            checkpoints.pollFirstEntry();
+        }
+        for (Map.Entry<LocalDateTime, List<String[]>> entry : checkpoints.entrySet()) {
+            CsvDataStore.writeLocalRecords(fileOf(entry.getKey()), HEADER, entry.getValue());
+        }
+        BinarySnapshot.delete(legacyFile);
+        Files.move(legacyFile, legacyFile.resolveSibling(legacyFile.getFileName() + ".migrated"));
+    }
+
+    private Path fileOf(LocalDateTime checkpointAt) {
+        return directory.resolve(FILE_NAME.format(checkpointAt) + EXTENSION);
+    }
+
+    private Path layersFileOf(LocalDateTime checkpointAt) {
+        return directory.resolve(FILE_NAME.format(checkpointAt) + LAYERS_EXTENSION);
+    }
+
+    private static List<String[]> toRows(LocalDateTime checkpointAt, Collection<StockBalance> balances) {
+        List<String[]> rows = new ArrayList<>(balances.size());
+        for (StockBalance balance : balances) {
+            rows.add(new String[]{
+                checkpointAt.toString(),
+                balance.getMedicineId(),
+                String.valueOf(balance.getQuantity()),
+                balance.getValue().toPlainString()
+            });
+        }
+        return rows;
+    }
+
+    private static int resolveRetain() {
+        String fromEnv = System.getenv("CLINIC_STOCK_CHECKPOINT_RETAIN");
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            return Integer.parseInt(fromEnv.trim());
+        }
+        return Integer.getInteger("clinic.stock.checkpoint.retain", DEFAULT_RETAIN);
+    }
+}
@@ -5,23 +5,91 @@ import clinic.model.StockMovement.MovementType;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class StockMovementRepository {
     private static final String HEADER = "id|medicineId|movementType|quantity|unitCost|totalCost|occurredAt|referenceType|referenceId|operatorId|notes";
+    private static final Map<String, ColumnarArchive.Encoding> ARCHIVE_ENCODINGS = Map.of(
+        "medicineId", ColumnarArchive.Encoding.DICTIONARY,
+        "movementType", ColumnarArchive.Encoding.DICTIONARY,
+        "quantity", ColumnarArchive.Encoding.SCALED_DECIMAL,
+        "unitCost", ColumnarArchive.Encoding.SCALED_DECIMAL,
+        "totalCost", ColumnarArchive.Encoding.SCALED_DECIMAL,
+        "occurredAt", ColumnarArchive.Encoding.DELTA_TIMESTAMP,
+        "referenceType", ColumnarArchive.Encoding.DICTIONARY,
+        "operatorId", ColumnarArchive.Encoding.DICTIONARY
+    );
+    private static final int TIMESTAMP_COLUMN = 6;
 
     private final Path file;
+    private final PartitionedCsvStore store;
 
     public StockMovementRepository(Path file) {
         this.file = file;
+        this.store = new PartitionedCsvStore(file, HEADER, TIMESTAMP_COLUMN);
     }
 
     public List<StockMovement> findAll() throws IOException {
-        List<String[]> rows = CsvDataStore.readRecords(file);
+        return toMovements(store.readAll());
+    }
+
+    public List<StockMovement> findBetween(LocalDateTime from, LocalDateTime to) throws IOException {
+        return toMovements(store.readBetween(from, to));
+    }
+
+    public List<StockMovement> findByMedicine(String medicineId) throws IOException {
+        return findAll().stream()
+            .filter(m -> m.getMedicineId().equals(medicineId))
+            .collect(Collectors.toList());
+    }
+
+    public void save(StockMovement movement) throws IOException {
+        store.append(List.<String[]>of(toRow(movement)));
+    }
+
+    public void saveAll(Collection<StockMovement> batch) throws IOException {
+        List<String[]> rows = new ArrayList<>(batch.size());
+        for (StockMovement movement : batch) {
+            rows.add(toRow(movement));
+        }
+        store.append(rows);
+    }
+
+    public int archiveBefore(YearMonth month) throws IOException {
+        return store.archiveBefore(month);
+    }
+
+    public Path writeColumnarArchive(LocalDateTime closedBefore) throws IOException {
+        List<String[]> closed = new ArrayList<>();
+        for (String[] row : store.readBetween(null, closedBefore)) {
+            if (LocalDateTime.parse(row[6]).isBefore(closedBefore)) {
+                closed.add(row);
+            }
+        }
+        Path target = archiveFile();
+        ColumnarArchive.write(target, HEADER, ARCHIVE_ENCODINGS, closed, closedBefore);
+        return target;
+    }
+
+    public Optional<ColumnarArchive> openColumnarArchive() throws IOException {
+        Path archive = archiveFile();
+        return Files.exists(archive) ? Optional.of(ColumnarArchive.open(archive)) : Optional.empty();
+    }
+
+    private Path archiveFile() {
+        return file.resolveSibling("archive").resolve("stock_movements.col");
+    }
+
+    private List<StockMovement> toMovements(List<String[]> rows) {
         List<StockMovement> movements = new ArrayList<>(rows.size());
         for (String[] row : rows) {
             if (row.length < 11) {
@@ -44,36 +112,20 @@ public class StockMovementRepository {
         return movements;
     }
 
-    public List<StockMovement> findByMedicine(String medicineId) throws IOException {
-        return findAll().stream()
-            .filter(m -> m.getMedicineId().equals(medicineId))
-            .collect(Collectors.toList());
-    }
-
-    public void save(StockMovement movement) throws IOException {
-        List<StockMovement> movements = findAll();
-        movements.add(movement);
-        write(movements);
-    }
-
-    private void write(List<StockMovement> movements) throws IOException {
-        List<String[]> rows = new ArrayList<>(movements.size());
-        for (StockMovement movement : movements) {
-            rows.add(new String[]{
-                movement.getId(),
-                movement.getMedicineId(),
-                movement.getMovementType().name(),
-                Integer.toString(movement.getQuantity()),
-                movement.getUnitCost().toPlainString(),
-                movement.getTotalCost().toPlainString(),
-                movement.getOccurredAt().toString(),
-                movement.getReferenceType() == null ? "" : movement.getReferenceType(),
-                movement.getReferenceId() == null ? "" : movement.getReferenceId(),
-                movement.getOperatorId() == null ? "" : movement.getOperatorId(),
-                movement.getNotes()
-            });
-        }
-        CsvDataStore.writeRecords(file, HEADER, rows);
+    private String[] toRow(StockMovement movement) {
+        return new String[]{
+            movement.getId(),
+            movement.getMedicineId(),
+            movement.getMovementType().name(),
+            Integer.toString(movement.getQuantity()),
+            movement.getUnitCost().toPlainString(),
+            movement.getTotalCost().toPlainString(),
+            movement.getOccurredAt().toString(),
+            movement.getReferenceType() == null ? "" : movement.getReferenceType(),
+            movement.getReferenceId() == null ? "" : movement.getReferenceId(),
+            movement.getOperatorId() == null ? "" : movement.getOperatorId(),
+            movement.getNotes()
+        };
     }
 
     private MovementType parseType(String value) {
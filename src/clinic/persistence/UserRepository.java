@@ -7,13 +7,19 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 public class UserRepository {
     private static final String HEADER = "id|username|passwordHash|role|createdAt";
 
     private final Path file;
+    private Map<String, User> byUsername;
+    private UsernameBloomFilter usernames;
 
     public UserRepository(Path file) {
         this.file = file;
@@ -37,13 +43,28 @@ public class UserRepository {
         return users;
     }
 
-    public Optional<User> findByUsername(String username) throws IOException {
-        return findAll().stream()
-            .filter(u -> u.getUsername().equalsIgnoreCase(username))
-            .findFirst();
+    public synchronized Optional<User> findByUsername(String username) throws IOException {
+        if (username == null) {
+            return Optional.empty();
+        }
+        String key = fold(username);
+        loadIndex();
+        if (!usernames.mightContain(key)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byUsername.get(key));
+    }
+
+    public synchronized boolean existsByUsername(String username) throws IOException {
+        if (username == null) {
+            return false;
+        }
+        String key = fold(username);
+        loadIndex();
+        return usernames.mightContain(key) && byUsername.containsKey(key);
     }
 
-    public void save(User user) throws IOException {
+    public synchronized void save(User user) throws IOException {
         List<User> users = findAll();
         boolean updated = false;
         for (int i = 0; i < users.size(); i++) {
@@ -59,12 +80,31 @@ public class UserRepository {
         write(users);
     }
 
-    public void deleteById(String id) throws IOException {
+    public synchronized void deleteById(String id) throws IOException {
         List<User> users = findAll();
         users.removeIf(u -> u.getId().equals(id));
         write(users);
     }
 
+    public synchronized void saveAll(Collection<User> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<User> users = findAll();
+        CsvDataStore.mergeByKey(users, batch, User::getId);
+        write(users);
+    }
+
+    public synchronized void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<User> users = findAll();
+        if (CsvDataStore.removeByKey(users, ids, User::getId)) {
+            write(users);
+        }
+    }
+
     private void write(List<User> users) throws IOException {
         List<String[]> rows = new ArrayList<>(users.size());
         for (User user : users) {
@@ -77,5 +117,28 @@ public class UserRepository {
             });
         }
         CsvDataStore.writeRecords(file, HEADER, rows);
+        index(users);
+    }
+
+    private void loadIndex() throws IOException {
+        if (byUsername == null) {
+            index(findAll());
+        }
+    }
+
+    private void index(List<User> users) {
+        Map<String, User> indexed = new HashMap<>(users.size() * 2);
+        UsernameBloomFilter filter = new UsernameBloomFilter(users.size() * 2);
+        for (User user : users) {
+            String key = fold(user.getUsername());
+            indexed.putIfAbsent(key, user);
+            filter.add(key);
+        }
+        byUsername = indexed;
+        usernames = filter;
+    }
+
+    private static String fold(String username) {
+        return username.toLowerCase(Locale.ROOT);
     }
 }
@@ -0,0 +1,46 @@
+package clinic.persistence;
+
+import java.util.BitSet;
+
+/**
+ * Bloom filter over case-folded usernames: a negative answer means the name is certainly free,
+ * so existence checks for new names skip the index entirely. Sized for about 1% false positives at
+ * the given capacity; the repository rebuilds it on every write of the users table.
+ */
+final class UsernameBloomFilter {
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASHES = 7;
+
+    private final BitSet bits;
+    private final int size;
+
+    UsernameBloomFilter(int capacity) {
+        this.size = Math.max(capacity, 64) * BITS_PER_ENTRY;
+        this.bits = new BitSet(size);
+    }
+
+    void add(String key) {
+        int h1 = key.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < HASHES; i++) {
+            bits.set(Math.floorMod(h1 + i * h2, size));
+        }
+    }
+
+    boolean mightContain(String key) {
+        int h1 = key.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < HASHES; i++) {
+            if (!bits.get(Math.floorMod(h1 + i * h2, size))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,28 +44,54 @@ public class WorkProgressRepository {
             .collect(Collectors.toList());
     }
 
-    public void save(WorkProgress progress) throws IOException {
+    public WorkProgress save(WorkProgress progress) throws IOException {
         List<WorkProgress> progresses = findAll();
-        boolean updated = false;
+        WorkProgress previous = null;
         for (int i = 0; i < progresses.size(); i++) {
             if (progresses.get(i).getId().equals(progress.getId())) {
-                progresses.set(i, progress);
-                updated = true;
+                previous = progresses.set(i, progress);
                 break;
             }
         }
-        if (!updated) {
+        if (previous == null) {
             progresses.add(progress);
         }
         write(progresses);
+        return previous;
     }
 
-    public void deleteById(String id) throws IOException {
+    public WorkProgress deleteById(String id) throws IOException {
         List<WorkProgress> progresses = findAll();
-        progresses.removeIf(p -> p.getId().equals(id));
+        WorkProgress removed = null;
+        for (int i = 0; i < progresses.size(); i++) {
+            if (progresses.get(i).getId().equals(id)) {
+                removed = progresses.remove(i);
+                break;
+            }
+        }
+        write(progresses);
+        return removed;
+    }
+
+    public void saveAll(Collection<WorkProgress> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<WorkProgress> progresses = findAll();
+        CsvDataStore.mergeByKey(progresses, batch, WorkProgress::getId);
         write(progresses);
     }
 
+    public void deleteAllById(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<WorkProgress> progresses = findAll();
+        if (CsvDataStore.removeByKey(progresses, ids, WorkProgress::getId)) {
+            write(progresses);
+        }
+    }
+
     private void write(List<WorkProgress> progresses) throws IOException {
         List<String[]> rows = new ArrayList<>(progresses.size());
         for (WorkProgress progress : progresses) {
@@ -0,0 +1,116 @@
+package clinic.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the latest full image of each table in memory and writes it out once per interval,
+ * so a burst of rewrites of the same CSV (create then update, seeding loops) costs one physical write.
+ * Reads consult the buffer first, which keeps read-your-writes semantics for every repository.
+ */
+final class WriteBehindBuffer {
+    private static final Logger LOGGER = Logger.getLogger(WriteBehindBuffer.class.getName());
+
+    interface TableWriter {
+        void write(Path file, String header, List<String[]> records) throws IOException;
+    }
+
+    private static final class PendingWrite {
+        private final String header;
+        private final List<String[]> records;
+
+        private PendingWrite(String header, List<String[]> records) {
+            this.header = header;
+            this.records = records;
+        }
+    }
+
+    private final TableWriter writer;
+    private final long intervalMillis;
+    private final Map<Path, PendingWrite> pending = new LinkedHashMap<>();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduledFlush;
+
+    WriteBehindBuffer(TableWriter writer, long intervalMillis) {
+        this.writer = writer;
+        this.intervalMillis = intervalMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "clinic-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    synchronized void put(Path file, String header, List<String[]> records) {
+        pending.put(file, new PendingWrite(header, new ArrayList<>(records)));
+        if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flushQuietly, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized List<String[]> read(Path file) {
+        PendingWrite write = pending.get(file);
+        return write == null ? null : new ArrayList<>(write.records);
+    }
+
+    void flush() throws IOException {
+        synchronized (flushLock) {
+            Map<Path, PendingWrite> batch;
+            synchronized (this) {
+                scheduledFlush = null;
+                batch = new LinkedHashMap<>(pending);
+            }
+            IOException failure = null;
+            for (Map.Entry<Path, PendingWrite> entry : batch.entrySet()) {
+                PendingWrite write = entry.getValue();
+                try {
+                    writer.write(entry.getKey(), write.header, write.records);
+                    synchronized (this) {
+                        pending.remove(entry.getKey(), write);
+                    }
+                } catch (IOException ex) {
+                    if (failure == null) {
+                        failure = ex;
+                    } else {
+                        failure.addSuppressed(ex);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    void shutdown() throws IOException {
+        try {
+            flush();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "延迟写入失败，将在下次刷新时重试", ex);
+            synchronized (this) {
+                if (scheduledFlush == null && !pending.isEmpty()) {
+                    scheduledFlush = scheduler.schedule(this::flushQuietly, intervalMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+}
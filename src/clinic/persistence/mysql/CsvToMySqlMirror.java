@@ -37,10 +37,13 @@ public final class CsvToMySqlMirror {
     }
 
     public void mirror(Path csvFile, String header, List<String[]> records) throws IOException {
+        mirror(deriveTableName(csvFile), header, records);
+    }
+
+    public void mirror(String tableName, String header, List<String[]> records) throws IOException {
         if (!enabled) {
             return;
         }
-        String tableName = deriveTableName(csvFile);
         String[] columns = header.split("\\|", -1);
         List<String[]> normalizedRecords = normalizeRecords(records, columns.length);
         try (Connection connection = MySqlConnectionManager.getConnection()) {
@@ -56,6 +59,21 @@ public final class CsvToMySqlMirror {
         }
     }
 
+    public void append(String tableName, String header, List<String[]> records) throws IOException {
+        if (!enabled || records.isEmpty()) {
+            return;
+        }
+        String[] columns = header.split("\\|", -1);
+        try (Connection connection = MySqlConnectionManager.getConnection()) {
+            connection.setAutoCommit(false);
+            bulkInsert(connection, tableName, columns, normalizeRecords(records, columns.length));
+            connection.commit();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "追加 CSV 至 MySQL 失败: " + tableName, ex);
+            throw new IOException("无法追加数据到 MySQL 表: " + tableName, ex);
+        }
+    }
+
     private String deriveTableName(Path csvFile) {
         String filename = csvFile.getFileName().toString();
         if (filename.contains(".")) {
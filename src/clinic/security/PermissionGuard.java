@@ -4,6 +4,7 @@ import clinic.AppContext;
 import clinic.model.Doctor;
 import clinic.model.Role;
 import clinic.model.User;
+import clinic.service.SessionStore;
 import clinic.util.DoctorMatcher;
 
 import javax.swing.JLabel;
@@ -15,16 +16,16 @@ import java.awt.Component;
 import java.awt.GridLayout;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 
 public class PermissionGuard {
     private final AppContext context;
     private final User currentUser;
-    private final Set<String> approvedDoctorIds = new HashSet<>();
+    private final Map<String, String> approvalTokens = new HashMap<>();
     private Optional<Doctor> cachedCurrentDoctor;
 
     public PermissionGuard(AppContext context, User currentUser) {
@@ -63,7 +64,7 @@ public class PermissionGuard {
         Optional<Doctor> targetDoctor = doctors.stream()
             .filter(doc -> DoctorMatcher.matches(reference, doc))
             .findFirst();
-        if (targetDoctor.isPresent() && approvedDoctorIds.contains(targetDoctor.get().getId())) {
+        if (targetDoctor.isPresent() && isApproved(targetDoctor.get().getId())) {
             return true;
         }
         Optional<Doctor> currentDoctor = getCurrentDoctor(doctors);
@@ -82,10 +83,21 @@ public class PermissionGuard {
         }
         Optional<Doctor> resolved = resolveDoctorForUser(doctors, currentUser);
         cachedCurrentDoctor = resolved;
-        resolved.ifPresent(doctor -> approvedDoctorIds.add(doctor.getId()));
         return resolved;
     }
 
+    private boolean isApproved(String doctorId) {
+        String token = approvalTokens.get(doctorId);
+        if (token == null) {
+            return false;
+        }
+        if (context.getSessionStore().find(token).isPresent()) {
+            return true;
+        }
+        approvalTokens.remove(doctorId);
+        return false;
+    }
+
     private boolean promptForVerification(Component parent, List<Doctor> doctors, Optional<Doctor> targetDoctor,
                                            String reference, String actionLabel) throws IOException {
         JTextField usernameField = new JTextField();
@@ -135,7 +147,8 @@ public class PermissionGuard {
                 JOptionPane.showMessageDialog(parent, "输入的医生账号与目标记录不一致", "提示", JOptionPane.WARNING_MESSAGE);
                 return false;
             }
-            approvedDoctorIds.add(doctor.getId());
+            SessionStore.Session session = context.getSessionStore().open(verifiedUser);
+            approvalTokens.put(doctor.getId(), session.getToken());
             return true;
         } finally {
             Arrays.fill(password, '\0');
@@ -0,0 +1,93 @@
+package clinic.service;
+
+import clinic.model.Appointment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Per-doctor index of booked time ranges, ordered by start time.
+ * An overlap query only visits appointments starting within the longest booked duration
+ * before the requested end, so conflict checks stay logarithmic in the size of the history.
+ * Cancelled appointments do not occupy a slot.
+ */
+final class AppointmentIntervalIndex {
+    private static final class DoctorSlots {
+        private final NavigableMap<LocalDateTime, List<Appointment>> byStart = new TreeMap<>();
+        private int longestMinutes;
+    }
+
+    private final Map<String, DoctorSlots> slotsByDoctor = new HashMap<>();
+    private final Map<String, Appointment> byId = new HashMap<>();
+
+    void rebuild(Collection<Appointment> appointments) {
+        slotsByDoctor.clear();
+        byId.clear();
+        for (Appointment appointment : appointments) {
+            put(appointment);
+        }
+    }
+
+    void put(Appointment appointment) {
+        remove(appointment.getId());
+        if ("CANCELLED".equalsIgnoreCase(appointment.getStatus())) {
+            return;
+        }
+        DoctorSlots slots = slotsByDoctor.computeIfAbsent(appointment.getDoctorId(), key -> new DoctorSlots());
+        slots.byStart.computeIfAbsent(appointment.getDateTime(), key -> new ArrayList<>(1)).add(appointment);
+        slots.longestMinutes = Math.max(slots.longestMinutes, appointment.getDurationMinutes());
+        byId.put(appointment.getId(), appointment);
+    }
+
+    void remove(String appointmentId) {
+        Appointment existing = byId.remove(appointmentId);
+        if (existing == null) {
+            return;
+        }
+        DoctorSlots slots = slotsByDoctor.get(existing.getDoctorId());
+        List<Appointment> atStart = slots.byStart.get(existing.getDateTime());
+        atStart.removeIf(a -> a.getId().equals(appointmentId));
+        if (atStart.isEmpty()) {
+            slots.byStart.remove(existing.getDateTime());
+        }
+    }
+
+    boolean overlaps(String doctorId, LocalDateTime start, LocalDateTime end, String ignoredId) {
+        DoctorSlots slots = slotsByDoctor.get(doctorId);
+        if (slots == null || slots.byStart.isEmpty()) {
+            return false;
+        }
+        LocalDateTime earliest = start.minusMinutes(slots.longestMinutes);
+        for (List<Appointment> candidates : slots.byStart.subMap(earliest, false, end, false).values()) {
+            for (Appointment candidate : candidates) {
+                if (!candidate.getId().equals(ignoredId) && candidate.getEndTime().isAfter(start)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    List<Appointment> bookedBetween(String doctorId, LocalDateTime from, LocalDateTime to) {
+        List<Appointment> booked = new ArrayList<>();
+        DoctorSlots slots = slotsByDoctor.get(doctorId);
+        if (slots == null) {
+            return booked;
+        }
+        LocalDateTime earliest = from.minusMinutes(slots.longestMinutes);
+        for (List<Appointment> candidates : slots.byStart.subMap(earliest, false, to, false).values()) {
+            for (Appointment candidate : candidates) {
+                if (candidate.getEndTime().isAfter(from)) {
+                    booked.add(candidate);
+                }
+            }
+        }
+        return booked;
+    }
+}
@@ -6,10 +6,14 @@ import clinic.persistence.CsvDataStore;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class AppointmentService {
     private final AppointmentRepository appointmentRepository;
+    private final AppointmentIntervalIndex slotIndex = new AppointmentIntervalIndex();
+    private boolean indexLoaded;
 
     public AppointmentService(AppointmentRepository appointmentRepository) {
         this.appointmentRepository = appointmentRepository;
@@ -20,47 +24,120 @@ public class AppointmentService {
     }
 
     public Appointment createAppointment(String patientId, String doctorId, LocalDateTime dateTime, String notes) throws IOException {
-        ensureNoConflict(doctorId, dateTime);
+        return createAppointment(patientId, doctorId, dateTime, Appointment.DEFAULT_DURATION_MINUTES, notes);
+    }
+
+    public synchronized Appointment createAppointment(String patientId,
+                                                      String doctorId,
+                                                      LocalDateTime dateTime,
+                                                      int durationMinutes,
+                                                      String notes) throws IOException {
         Appointment appointment = new Appointment(
             CsvDataStore.randomId(),
             patientId,
             doctorId,
             dateTime,
             "PENDING",
-            notes
+            notes,
+            durationMinutes
         );
+        ensureNoConflict(appointment);
         appointmentRepository.save(appointment);
+        slotIndex.put(appointment);
         return appointment;
     }
 
-    public void updateStatus(String appointmentId, String status) throws IOException {
+    public synchronized List<Appointment> createAppointments(Collection<Appointment> requests) throws IOException {
+        List<Appointment> created = new ArrayList<>(requests.size());
+        for (Appointment request : requests) {
+            created.add(new Appointment(
+                CsvDataStore.randomId(),
+                request.getPatientId(),
+                request.getDoctorId(),
+                request.getDateTime(),
+                request.getStatus() == null ? "PENDING" : request.getStatus(),
+                request.getNotes(),
+                request.getDurationMinutes()
+            ));
+        }
+        AppointmentIntervalIndex index = index();
+        List<Appointment> accepted = new ArrayList<>(created.size());
+        try {
+            for (Appointment appointment : created) {
+                if ("CANCELLED".equalsIgnoreCase(appointment.getStatus())) {
+                    continue;
+                }
+                ensureNoConflict(appointment);
+                index.put(appointment);
+                accepted.add(appointment);
+            }
+            appointmentRepository.saveAll(created);
+        } catch (IOException | RuntimeException ex) {
+            for (Appointment appointment : accepted) {
+                index.remove(appointment.getId());
+            }
+            throw ex;
+        }
+        return created;
+    }
+
+    public synchronized void updateStatus(String appointmentId, String status) throws IOException {
         List<Appointment> all = appointmentRepository.findAll();
         for (Appointment appointment : all) {
             if (appointment.getId().equals(appointmentId)) {
-                Appointment updated = new Appointment(
-                    appointment.getId(),
-                    appointment.getPatientId(),
-                    appointment.getDoctorId(),
-                    appointment.getDateTime(),
-                    status,
-                    appointment.getNotes()
-                );
+                Appointment updated = appointment.withStatus(status);
+                if (isCancelled(appointment.getStatus()) && !isCancelled(status)) {
+                    ensureNoConflict(updated);
+                }
                 appointmentRepository.save(updated);
+                index().put(updated);
                 return;
             }
         }
         throw new IllegalArgumentException("未找到预约");
     }
 
-    public void deleteAppointment(String appointmentId) throws IOException {
+    public synchronized void deleteAppointment(String appointmentId) throws IOException {
         appointmentRepository.deleteById(appointmentId);
+        index().remove(appointmentId);
     }
 
-    private void ensureNoConflict(String doctorId, LocalDateTime dateTime) throws IOException {
-        for (Appointment existing : appointmentRepository.findAll()) {
-            if (existing.getDoctorId().equals(doctorId) && existing.getDateTime().equals(dateTime)) {
-                throw new IllegalArgumentException("该时间段医生已有预约");
-            }
+    public synchronized void deleteAppointments(Collection<String> appointmentIds) throws IOException {
+        appointmentRepository.deleteAllById(appointmentIds);
+        AppointmentIntervalIndex index = index();
+        for (String appointmentId : appointmentIds) {
+            index.remove(appointmentId);
+        }
+    }
+
+    public synchronized boolean isSlotAvailable(String doctorId, LocalDateTime start, int durationMinutes) throws IOException {
+        return !index().overlaps(doctorId, start, start.plusMinutes(durationMinutes), null);
+    }
+
+    public synchronized List<Appointment> listBookedBetween(String doctorId, LocalDateTime from, LocalDateTime to) throws IOException {
+        return index().bookedBetween(doctorId, from, to);
+    }
+
+    public synchronized void reloadIndex() throws IOException {
+        indexLoaded = false;
+        index();
+    }
+
+    private void ensureNoConflict(Appointment appointment) throws IOException {
+        if (index().overlaps(appointment.getDoctorId(), appointment.getDateTime(), appointment.getEndTime(), appointment.getId())) {
+            throw new IllegalArgumentException("该时间段医生已有预约");
+        }
+    }
+
+    private static boolean isCancelled(String status) {
+        return "CANCELLED".equalsIgnoreCase(status);
+    }
+
+    private AppointmentIntervalIndex index() throws IOException {
+        if (!indexLoaded) {
+            slotIndex.rebuild(appointmentRepository.findAll());
+            indexLoaded = true;
         }
+        return slotIndex;
     }
 }
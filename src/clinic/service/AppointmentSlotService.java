@@ -0,0 +1,147 @@
+package clinic.service;
+
+import clinic.model.Appointment;
+import clinic.model.CalendarEvent;
+import clinic.model.Doctor;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds bookable slots for a doctor or a whole department.
+ * Each distinct schedule text is parsed once into weekly working-slot bitmaps; the free slots of a day
+ * are its working bits minus the bits covered by booked appointments and the doctor's calendar events.
+ * Events tagged APPOINTMENT are outpatient sessions and therefore do not block a slot.
+ */
+public class AppointmentSlotService {
+    private static final int SEARCH_DAYS = 28;
+    private static final String CLINIC_SESSION_TAG = "APPOINTMENT";
+
+    private final DoctorService doctorService;
+    private final AppointmentService appointmentService;
+    private final CalendarEventService calendarEventService;
+    private final Map<String, WeeklySchedule> schedules = new ConcurrentHashMap<>();
+
+    public static final class FreeSlot {
+        private final Doctor doctor;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        private FreeSlot(Doctor doctor, LocalDateTime start, LocalDateTime end) {
+            this.doctor = doctor;
+            this.start = start;
+            this.end = end;
+        }
+
+        public Doctor getDoctor() {
+            return doctor;
+        }
+
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        public LocalDateTime getEnd() {
+            return end;
+        }
+    }
+
+    public AppointmentSlotService(DoctorService doctorService,
+                                  AppointmentService appointmentService,
+                                  CalendarEventService calendarEventService) {
+        this.doctorService = doctorService;
+        this.appointmentService = appointmentService;
+        this.calendarEventService = calendarEventService;
+    }
+
+    public List<LocalDateTime> nextFreeSlots(String doctorId, LocalDateTime from, int count) throws IOException {
+        Doctor doctor = doctorService.listDoctors().stream()
+            .filter(d -> d.getId().equals(doctorId))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("未找到医生"));
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (FreeSlot slot : scan(doctor, from, count)) {
+            starts.add(slot.getStart());
+        }
+        return starts;
+    }
+
+    public List<FreeSlot> nextFreeSlotsForDepartment(String department, LocalDateTime from, int count) throws IOException {
+        List<FreeSlot> merged = new ArrayList<>();
+        for (Doctor doctor : doctorService.listDoctors()) {
+            if (department == null || department.equals(doctor.getDepartment())) {
+                merged.addAll(scan(doctor, from, count));
+            }
+        }
+        merged.sort(Comparator.comparing(FreeSlot::getStart).thenComparing(slot -> slot.getDoctor().getName()));
+        return merged.size() > count ? new ArrayList<>(merged.subList(0, count)) : merged;
+    }
+
+    private List<FreeSlot> scan(Doctor doctor, LocalDateTime from, int count) throws IOException {
+        List<FreeSlot> slots = new ArrayList<>();
+        WeeklySchedule schedule = schedules.computeIfAbsent(
+            doctor.getSchedule() == null ? "" : doctor.getSchedule(), WeeklySchedule::parse);
+        if (count <= 0 || schedule.isEmpty()) {
+            return slots;
+        }
+        LocalDate firstDay = from.toLocalDate();
+        LocalDate lastDay = firstDay.plusDays(SEARCH_DAYS);
+        Map<LocalDate, Long> busy = busySlots(doctor.getId(), firstDay.atStartOfDay(), lastDay.atStartOfDay());
+        for (LocalDate day = firstDay; day.isBefore(lastDay) && slots.size() < count; day = day.plusDays(1)) {
+            long free = schedule.workingSlots(day.getDayOfWeek()) & ~busy.getOrDefault(day, 0L);
+            if (day.equals(firstDay)) {
+                free &= ~WeeklySchedule.slotsCovering(0, minuteOfDay(from, true));
+            }
+            while (free != 0 && slots.size() < count) {
+                int slot = Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+                LocalDateTime start = day.atTime(WeeklySchedule.timeOf(slot));
+                slots.add(new FreeSlot(doctor, start, start.plusMinutes(WeeklySchedule.SLOT_MINUTES)));
+            }
+        }
+        return slots;
+    }
+
+    private Map<LocalDate, Long> busySlots(String doctorId, LocalDateTime from, LocalDateTime to) throws IOException {
+        Map<LocalDate, Long> busy = new HashMap<>();
+        for (Appointment appointment : appointmentService.listBookedBetween(doctorId, from, to)) {
+            markBusy(busy, appointment.getDateTime(), appointment.getEndTime(), from, to);
+        }
+        for (CalendarEvent event : calendarEventService.listByOwner(doctorId)) {
+            if (event.getStart() != null && event.getEnd() != null
+                && !event.getNotes().startsWith(CLINIC_SESSION_TAG)
+                && event.getStart().isBefore(to) && event.getEnd().isAfter(from)) {
+                markBusy(busy, event.getStart(), event.getEnd(), from, to);
+            }
+        }
+        return busy;
+    }
+
+    private static void markBusy(Map<LocalDate, Long> busy, LocalDateTime start, LocalDateTime end,
+                                 LocalDateTime windowStart, LocalDateTime windowEnd) {
+        LocalDateTime cursor = start.isBefore(windowStart) ? windowStart : start;
+        LocalDateTime limit = end.isAfter(windowEnd) ? windowEnd : end;
+        while (cursor.isBefore(limit)) {
+            LocalDate day = cursor.toLocalDate();
+            LocalDateTime nextDay = day.plusDays(1).atStartOfDay();
+            int endMinute = limit.isBefore(nextDay) ? minuteOfDay(limit, true) : 24 * 60;
+            busy.merge(day, WeeklySchedule.slotsCovering(minuteOfDay(cursor, false), endMinute), (a, b) -> a | b);
+            cursor = nextDay;
+        }
+    }
+
+    private static int minuteOfDay(LocalDateTime time, boolean roundUp) {
+        int minute = time.getHour() * 60 + time.getMinute();
+        if (roundUp && (time.getSecond() > 0 || time.getNano() > 0)) {
+            minute++;
+        }
+        return minute;
+    }
+}
@@ -0,0 +1,97 @@
+package clinic.service;
+
+import clinic.model.AuditCheckpoint;
+import clinic.model.AuditLog;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.logging.Logger;
+
+/**
+ * Hash chain over audit rows: each row stores SHA-256(previous hash | row content), so editing,
+ * removing or reordering a row breaks every later hash. Checkpoints carry an HMAC-SHA256 of the
+ * chain hash, keyed by CLINIC_AUDIT_KEY (or clinic.audit.key); without one, a random key is
+ * generated into the data directory, which only protects against edits by users without file access.
+ */
+final class AuditHashChain {
+    static final String GENESIS = "0".repeat(64);
+
+    private static final Logger LOGGER = Logger.getLogger(AuditHashChain.class.getName());
+    private static final String HMAC = "HmacSHA256";
+
+    private final byte[] key;
+
+    private AuditHashChain(byte[] key) {
+        this.key = key;
+    }
+
+    static AuditHashChain load(Path fallbackKeyFile) throws IOException {
+        String configured = System.getenv("CLINIC_AUDIT_KEY");
+        if (configured == null || configured.isBlank()) {
+            configured = System.getProperty("clinic.audit.key");
+        }
+        if (configured != null && !configured.isBlank()) {
+            return new AuditHashChain(configured.trim().getBytes(StandardCharsets.UTF_8));
+        }
+        if (Files.notExists(fallbackKeyFile)) {
+            byte[] generated = new byte[32];
+            new SecureRandom().nextBytes(generated);
+            Files.createDirectories(fallbackKeyFile.toAbsolutePath().getParent());
+            Files.writeString(fallbackKeyFile, HexFormat.of().formatHex(generated));
+            LOGGER.warning("未配置 CLINIC_AUDIT_KEY，已生成本地审计签名密钥: " + fallbackKeyFile);
+        }
+        return new AuditHashChain(HexFormat.of().parseHex(Files.readString(fallbackKeyFile).trim()));
+    }
+
+    static String next(String previousHash, AuditLog log) {
+        String content = String.join("|",
+            previousHash,
+            log.getId(),
+            log.getTimestamp().toString(),
+            valueOf(log.getUserId()),
+            valueOf(log.getRole()),
+            valueOf(log.getAction()),
+            valueOf(log.getEntityType()),
+            valueOf(log.getEntityId()),
+            valueOf(log.getDetail()),
+            valueOf(log.getResult()),
+            valueOf(log.getIpAddress()));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("不支持的哈希算法", e);
+        }
+    }
+
+    String sign(long sequence, String entryId, String chainHash) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(key, HMAC));
+            byte[] signature = mac.doFinal((sequence + "|" + entryId + "|" + chainHash).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支持的签名算法", e);
+        }
+    }
+
+    boolean isAuthentic(AuditCheckpoint checkpoint) {
+        String expected = sign(checkpoint.getSequence(), checkpoint.getEntryId(), checkpoint.getChainHash());
+        return MessageDigest.isEqual(
+            expected.getBytes(StandardCharsets.UTF_8),
+            checkpoint.getSignature().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String valueOf(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,278 @@
+package clinic.service;
+
+import clinic.model.AuditLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over the searchable audit fields (action, detail, role, entityType).
+ * Entries are numbered in timestamp order, so a time range is a contiguous id range found by binary
+ * search and every posting list is sorted. Han text is indexed as overlapping bigrams plus the last
+ * character of each run, other text as lower-cased words with all their suffixes, each cut to at most
+ * 20 chars, so a query word (cut the same way) matching a term prefix finds it anywhere inside an
+ * indexed word. The postings of all terms sharing a prefix are unioned through a bitset over the
+ * searched id range. Candidates are finally checked with a case-insensitive substring test on a
+ * single field.
+ */
+final class AuditSearchIndex {
+    private static final int MAX_TERM_LENGTH = 20;
+    private static final Comparator<AuditLog> BY_TIME = Comparator.comparing(AuditSearchIndex::timeOf);
+
+    private final List<AuditLog> logs = new ArrayList<>();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private boolean ordered = true;
+
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        private int[] between(int from, int to) {
+            int start = lowerBound(ids, size, from);
+            int end = lowerBound(ids, size, to);
+            return Arrays.copyOfRange(ids, start, end);
+        }
+    }
+
+    void rebuild(Collection<AuditLog> entries) {
+        logs.clear();
+        terms.clear();
+        List<AuditLog> sorted = new ArrayList<>(entries);
+        sorted.sort(BY_TIME);
+        for (AuditLog log : sorted) {
+            append(log);
+        }
+        ordered = true;
+    }
+
+    void add(AuditLog log) {
+        if (!logs.isEmpty() && timeOf(log).isBefore(timeOf(logs.get(logs.size() - 1)))) {
+            ordered = false;
+        }
+        append(log);
+    }
+
+    int size() {
+        return logs.size();
+    }
+
+    List<AuditLog> search(String keyword, LocalDateTime from, LocalDateTime to) {
+        if (!ordered) {
+            rebuild(new ArrayList<>(logs));
+        }
+        int start = from == null ? 0 : firstAtOrAfter(from);
+        int end = to == null ? logs.size() : firstAfter(to);
+        List<AuditLog> results = new ArrayList<>();
+        if (start >= end) {
+            return results;
+        }
+        String needle = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            results.addAll(logs.subList(start, end));
+            return results;
+        }
+        int[] candidates = null;
+        for (Query query : tokenize(needle, true)) {
+            int[] matches = query.prefix ? unionOfPrefix(query.term, start, end) : exact(query.term, start, end);
+            candidates = candidates == null ? matches : intersect(candidates, matches);
+            if (candidates.length == 0) {
+                return results;
+            }
+        }
+        if (candidates == null) {
+            return scan(needle, start, end);
+        }
+        for (int id : candidates) {
+            if (matches(logs.get(id), needle)) {
+                results.add(logs.get(id));
+            }
+        }
+        return results;
+    }
+
+    private void append(AuditLog log) {
+        int id = logs.size();
+        logs.add(log);
+        for (String field : fieldsOf(log)) {
+            if (field == null || field.isEmpty()) {
+                continue;
+            }
+            for (Query token : tokenize(field.toLowerCase(Locale.ROOT), false)) {
+                terms.computeIfAbsent(token.term, key -> new Postings()).add(id);
+            }
+        }
+    }
+
+    private List<AuditLog> scan(String needle, int start, int end) {
+        List<AuditLog> results = new ArrayList<>();
+        for (int id = start; id < end; id++) {
+            if (matches(logs.get(id), needle)) {
+                results.add(logs.get(id));
+            }
+        }
+        return results;
+    }
+
+    private int[] exact(String term, int start, int end) {
+        Postings postings = terms.get(term);
+        return postings == null ? new int[0] : postings.between(start, end);
+    }
+
+    private int[] unionOfPrefix(String prefix, int start, int end) {
+        BitSet union = new BitSet(end - start);
+        for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            int from = lowerBound(postings.ids, postings.size, start);
+            int to = lowerBound(postings.ids, postings.size, end);
+            for (int k = from; k < to; k++) {
+                union.set(postings.ids[k] - start);
+            }
+        }
+        int[] ids = new int[union.cardinality()];
+        int size = 0;
+        for (int bit = union.nextSetBit(0); bit >= 0; bit = union.nextSetBit(bit + 1)) {
+            ids[size++] = bit + start;
+        }
+        return ids;
+    }
+
+    private int firstAtOrAfter(LocalDateTime time) {
+        int low = 0;
+        int high = logs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeOf(logs.get(mid)).isBefore(time)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int firstAfter(LocalDateTime time) {
+        int low = 0;
+        int high = logs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeOf(logs.get(mid)).isAfter(time)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static final class Query {
+        private final String term;
+        private final boolean prefix;
+
+        private Query(String term, boolean prefix) {
+            this.term = term;
+            this.prefix = prefix;
+        }
+    }
+
+    private static List<Query> tokenize(String text, boolean query) {
+        List<Query> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int start = i;
+            if (Character.isIdeographic(text.charAt(i))) {
+                while (i < text.length() && Character.isIdeographic(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(new Query(text.substring(start, i), query));
+                    continue;
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    tokens.add(new Query(text.substring(j, j + 2), false));
+                }
+                if (!query) {
+                    tokens.add(new Query(text.substring(i - 1, i), false));
+                }
+            } else if (Character.isLetterOrDigit(text.charAt(i))) {
+                while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))
+                    && !Character.isIdeographic(text.charAt(i))) {
+                    i++;
+                }
+                int suffixes = query ? 1 : i - start;
+                for (int j = start; j < start + suffixes; j++) {
+                    tokens.add(new Query(text.substring(j, Math.min(i, j + MAX_TERM_LENGTH)), query));
+                }
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean matches(AuditLog log, String needle) {
+        for (String field : fieldsOf(log)) {
+            if (field != null && field.toLowerCase(Locale.ROOT).contains(needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] fieldsOf(AuditLog log) {
+        return new String[]{log.getAction(), log.getDetail(), log.getRole(), log.getEntityType()};
+    }
+
+    private static LocalDateTime timeOf(AuditLog log) {
+        return log.getTimestamp() == null ? LocalDateTime.MIN : log.getTimestamp();
+    }
+
+    private static int lowerBound(int[] ids, int size, int value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
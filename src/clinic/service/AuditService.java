@@ -1,19 +1,79 @@
 package clinic.service;
 
+import clinic.model.AuditCheckpoint;
 import clinic.model.AuditLog;
+import clinic.persistence.AuditCheckpointRepository;
 import clinic.persistence.AuditLogRepository;
+import clinic.persistence.PartitionedCsvStore;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * Audit log with a hash chain over its rows and HMAC-signed checkpoints every 1000 entries.
+ * Verification requires a checkpoint at every multiple of 1000 after the chain start and a hash on every
+ * row after it, so deleting the checkpoint file or its tail, or blanking hashes, is reported.
+ * The chain starts either on an empty log or at a signed anchor checkpoint (chain hash GENESIS) written
+ * when chaining begins on a log that already holds unhashed legacy rows.
+ */
 public class AuditService {
+    private static final int CHECKPOINT_EVERY_ENTRIES = 1000;
+
     private final AuditLogRepository auditLogRepository;
+    private final AuditCheckpointRepository checkpointRepository;
+    private final Path fallbackKeyFile;
+    private final AuditSearchIndex searchIndex = new AuditSearchIndex();
+    private boolean indexLoaded;
+    private AuditHashChain chain;
+    private String lastHash;
+    private String lastEntryId;
+    private long entryCount;
+
+    public static final class ChainVerification {
+        private final long checkedEntries;
+        private final long failedSequence;
+        private final String message;
+
+        private ChainVerification(long checkedEntries, long failedSequence, String message) {
+            this.checkedEntries = checkedEntries;
+            this.failedSequence = failedSequence;
+            this.message = message;
+        }
+
+        public boolean isValid() {
+            return failedSequence < 0;
+        }
+
+        public long getCheckedEntries() {
+            return checkedEntries;
+        }
 
-    public AuditService(AuditLogRepository auditLogRepository) {
+        public long getFailedSequence() {
+            return failedSequence;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public AuditService(AuditLogRepository auditLogRepository,
+                        AuditCheckpointRepository checkpointRepository,
+                        Path fallbackKeyFile) {
         this.auditLogRepository = auditLogRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.fallbackKeyFile = fallbackKeyFile;
     }
 
     public AuditLog logAction(String userId,
@@ -27,28 +87,124 @@ public class AuditService {
         AuditLog log = new AuditLog(
             java.util.UUID.randomUUID().toString(),
             LocalDateTime.now(),
-            userId,
-            role,
-            action,
-            entityType,
-            entityId,
-            detail,
-            result,
-            ipAddress
+            singleLine(userId),
+            singleLine(role),
+            singleLine(action),
+            singleLine(entityType),
+            singleLine(entityId),
+            singleLine(detail),
+            singleLine(result),
+            singleLine(ipAddress)
         );
-        auditLogRepository.append(log);
+        synchronized (this) {
+            loadChain();
+            if (entryCount > 0 && AuditHashChain.GENESIS.equals(lastHash)) {
+                checkpointRepository.append(new AuditCheckpoint(entryCount, lastEntryId, AuditHashChain.GENESIS,
+                    chain.sign(entryCount, lastEntryId, AuditHashChain.GENESIS), LocalDateTime.now()));
+            }
+            log = log.withHash(AuditHashChain.next(lastHash, log));
+            auditLogRepository.append(log);
+            lastHash = log.getHash();
+            lastEntryId = log.getId();
+            entryCount++;
+            if (entryCount % CHECKPOINT_EVERY_ENTRIES == 0) {
+                checkpointRepository.append(new AuditCheckpoint(
+                    entryCount, log.getId(), lastHash, chain.sign(entryCount, log.getId(), lastHash), LocalDateTime.now()));
+            }
+            if (indexLoaded) {
+                searchIndex.add(log);
+            }
+        }
         return log;
     }
 
+    public synchronized ChainVerification verifyChain() throws IOException {
+        loadChain();
+        List<AuditCheckpoint> checkpoints = checkpointRepository.findAll();
+        ChainVerification forged = verifyCheckpoints(checkpoints, auditLogRepository.count());
+        if (forged != null) {
+            return forged;
+        }
+        if (checkpoints.isEmpty()) {
+            return verifySegment(auditLogRepository.findFrom(0), 0, null, null, true);
+        }
+        AuditCheckpoint trusted = checkpoints.get(checkpoints.size() - 1);
+        List<AuditLog> rows = auditLogRepository.findFrom(trusted.getSequence() - 1);
+        if (rows.isEmpty() || !matches(trusted, rows.get(0))) {
+            return new ChainVerification(0, trusted.getSequence(), "检查点对应的第 " + trusted.getSequence() + " 条日志被修改或删除");
+        }
+        return verifySegment(rows.subList(1, rows.size()), trusted.getSequence(), chainHashAfter(trusted), null, true);
+    }
+
+    public synchronized ChainVerification verifyFullChain() throws IOException {
+        loadChain();
+        List<AuditCheckpoint> checkpoints = checkpointRepository.findAll();
+        List<AuditLog> rows = auditLogRepository.findFrom(0);
+        ChainVerification forged = verifyCheckpoints(checkpoints, rows.size());
+        if (forged != null) {
+            return forged;
+        }
+        for (AuditCheckpoint checkpoint : checkpoints) {
+            if (!matches(checkpoint, rows.get((int) checkpoint.getSequence() - 1))) {
+                return new ChainVerification(0, checkpoint.getSequence(), "检查点对应的第 " + checkpoint.getSequence() + " 条日志被修改或删除");
+            }
+        }
+        boolean anchored = !checkpoints.isEmpty() && isAnchor(checkpoints.get(0));
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        for (AuditCheckpoint checkpoint : checkpoints) {
+            bounds.add((int) checkpoint.getSequence());
+        }
+        bounds.add(rows.size());
+        List<ChainVerification> segments = IntStream.range(0, bounds.size() - 1)
+            .parallel()
+            .mapToObj(i -> verifySegment(
+                rows.subList(bounds.get(i), bounds.get(i + 1)),
+                bounds.get(i),
+                i == 0 ? null : chainHashAfter(checkpoints.get(i - 1)),
+                i < checkpoints.size() ? checkpoints.get(i) : null,
+                i > 0 || !anchored))
+            .collect(Collectors.toList());
+        long checked = 0;
+        for (ChainVerification segment : segments) {
+            checked += segment.getCheckedEntries();
+        }
+        return segments.stream()
+            .filter(segment -> !segment.isValid())
+            .min(Comparator.comparingLong(ChainVerification::getFailedSequence))
+            .orElse(new ChainVerification(checked, -1, "审计日志完整，已校验 " + checked + " 条"));
+    }
+
+    public void flush() throws IOException {
+        auditLogRepository.flush();
+    }
+
+    public void shutdown() throws IOException {
+        auditLogRepository.close();
+    }
+
     public List<AuditLog> listAll() throws IOException {
         return auditLogRepository.findAll();
     }
 
+    public List<AuditLog> listBetween(LocalDateTime from, LocalDateTime to) throws IOException {
+        return auditLogRepository.findBetween(from, to);
+    }
+
+    public int archiveColdMonths() throws IOException {
+        return auditLogRepository.archiveBefore(PartitionedCsvStore.archiveCutoff(YearMonth.now()));
+    }
+
     public List<AuditLog> filter(String keyword) throws IOException {
-        return filter(log -> contains(log.getAction(), keyword)
-            || contains(log.getDetail(), keyword)
-            || contains(log.getRole(), keyword)
-            || contains(log.getEntityType(), keyword));
+        return search(keyword, null, null);
+    }
+
+    public synchronized List<AuditLog> search(String keyword, LocalDateTime from, LocalDateTime to) throws IOException {
+        if (!indexLoaded) {
+            searchIndex.rebuild(auditLogRepository.findAll());
+            indexLoaded = true;
+        }
+        return searchIndex.search(keyword, from, to);
     }
 
     public List<AuditLog> filter(Predicate<AuditLog> predicate) throws IOException {
@@ -58,7 +214,98 @@ public class AuditService {
             .collect(Collectors.toList());
     }
 
-    private boolean contains(String source, String keyword) {
-        return source != null && keyword != null && source.contains(keyword);
+    private void loadChain() throws IOException {
+        if (chain != null) {
+            return;
+        }
+        AuditHashChain loaded = AuditHashChain.load(fallbackKeyFile);
+        long count = auditLogRepository.count();
+        String previous = AuditHashChain.GENESIS;
+        String lastId = null;
+        if (count > 0) {
+            List<AuditLog> tail = auditLogRepository.findFrom(count - 1);
+            if (!tail.isEmpty()) {
+                lastId = tail.get(tail.size() - 1).getId();
+                if (tail.get(tail.size() - 1).getHash() != null) {
+                    previous = tail.get(tail.size() - 1).getHash();
+                }
+            }
+        }
+        lastHash = previous;
+        lastEntryId = lastId;
+        entryCount = count;
+        chain = loaded;
+    }
+
+    private ChainVerification verifyCheckpoints(List<AuditCheckpoint> checkpoints, long count) {
+        Set<Long> present = new HashSet<>();
+        long previous = 0;
+        for (int i = 0; i < checkpoints.size(); i++) {
+            AuditCheckpoint checkpoint = checkpoints.get(i);
+            if (!chain.isAuthentic(checkpoint)) {
+                return new ChainVerification(0, checkpoint.getSequence(), "第 " + checkpoint.getSequence() + " 条处的检查点签名无效");
+            }
+            if (checkpoint.getSequence() <= previous || (i > 0 && isAnchor(checkpoint))) {
+                return new ChainVerification(0, checkpoint.getSequence(), "第 " + checkpoint.getSequence() + " 条处的检查点顺序异常");
+            }
+            if (checkpoint.getSequence() > count) {
+                return new ChainVerification(0, count + 1, "日志在第 " + count + " 条之后被截断，缺少第 " + checkpoint.getSequence() + " 条");
+            }
+            present.add(checkpoint.getSequence());
+            previous = checkpoint.getSequence();
+        }
+        long start = !checkpoints.isEmpty() && isAnchor(checkpoints.get(0)) ? checkpoints.get(0).getSequence() : 0;
+        for (long sequence = CHECKPOINT_EVERY_ENTRIES; sequence <= count; sequence += CHECKPOINT_EVERY_ENTRIES) {
+            if (sequence > start && !present.contains(sequence)) {
+                return new ChainVerification(0, sequence, "缺少第 " + sequence + " 条处的检查点，检查点可能被删除");
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAnchor(AuditCheckpoint checkpoint) {
+        return AuditHashChain.GENESIS.equals(checkpoint.getChainHash());
+    }
+
+    private static boolean matches(AuditCheckpoint checkpoint, AuditLog log) {
+        if (!log.getId().equals(checkpoint.getEntryId())) {
+            return false;
+        }
+        return isAnchor(checkpoint) ? log.getHash() == null : checkpoint.getChainHash().equals(log.getHash());
+    }
+
+    private static String chainHashAfter(AuditCheckpoint checkpoint) {
+        return isAnchor(checkpoint) ? null : checkpoint.getChainHash();
+    }
+
+    private static ChainVerification verifySegment(List<AuditLog> rows, long offset, String startHash,
+                                                   AuditCheckpoint end, boolean hashRequired) {
+        String previous = startHash;
+        long checked = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            AuditLog log = rows.get(i);
+            long sequence = offset + i + 1;
+            if (log.getHash() == null) {
+                if (previous == null && !hashRequired) {
+                    continue;
+                }
+                return new ChainVerification(checked, sequence, "第 " + sequence + " 条日志缺少哈希");
+            }
+            String expected = AuditHashChain.next(previous == null ? AuditHashChain.GENESIS : previous, log);
+            if (!expected.equals(log.getHash())) {
+                return new ChainVerification(checked, sequence, "第 " + sequence + " 条日志哈希不匹配，可能被篡改");
+            }
+            previous = log.getHash();
+            checked++;
+        }
+        String endHash = end == null ? null : chainHashAfter(end);
+        if (end != null && !Objects.equals(endHash, previous)) {
+            return new ChainVerification(checked, end.getSequence(), "第 " + end.getSequence() + " 条处的检查点与日志不一致");
+        }
+        return new ChainVerification(checked, -1, "审计日志完整，已校验 " + checked + " 条");
+    }
+
+    private static String singleLine(String value) {
+        return value == null ? null : value.replaceAll("[|\\r\\n]", " ");
     }
 }
@@ -31,11 +31,11 @@ public class AuthService {
     }
 
     public boolean userExists(String username) throws IOException {
-        return userRepository.findByUsername(username).isPresent();
+        return userRepository.existsByUsername(username);
     }
 
     public User registerPatient(String username, String password) throws IOException {
-        if (userRepository.findByUsername(username).isPresent()) {
+        if (userRepository.existsByUsername(username)) {
             throw new IllegalArgumentException("用户名已存在");
         }
         User user = new User(
@@ -63,7 +63,7 @@ public class AuthService {
     }
 
     public User createDoctorAccount(String username, String password) throws IOException {
-        if (userRepository.findByUsername(username).isPresent()) {
+        if (userRepository.existsByUsername(username)) {
             throw new IllegalArgumentException("用户名已存在");
         }
         User user = new User(
@@ -9,6 +9,7 @@ import java.util.List;
 
 public class CaseRecordService {
     private final CaseRecordRepository caseRecordRepository;
+    private final PatientDataListeners patientDataListeners = new PatientDataListeners();
 
     public CaseRecordService(CaseRecordRepository caseRecordRepository) {
         this.caseRecordRepository = caseRecordRepository;
@@ -32,14 +33,27 @@ public class CaseRecordService {
             attachment
         );
         caseRecordRepository.save(record);
+        patientDataListeners.fire(record.getPatientId());
         return record;
     }
 
     public void updateCaseRecord(CaseRecord record) throws IOException {
-        caseRecordRepository.save(record);
+        CaseRecord previous = caseRecordRepository.save(record);
+        patientDataListeners.fire(previous == null ? null : previous.getPatientId(), record.getPatientId());
     }
 
     public void deleteCaseRecord(String id) throws IOException {
-        caseRecordRepository.deleteById(id);
+        CaseRecord removed = caseRecordRepository.deleteById(id);
+        if (removed != null) {
+            patientDataListeners.fire(removed.getPatientId());
+        }
+    }
+
+    public void addPatientDataListener(PatientDataListener listener) {
+        patientDataListeners.add(listener);
+    }
+
+    public void removePatientDataListener(PatientDataListener listener) {
+        patientDataListeners.remove(listener);
     }
 }
@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 
 public class ConsultationService {
     private final ConsultationRepository consultationRepository;
+    private final PatientDataListeners patientDataListeners = new PatientDataListeners();
 
     public ConsultationService(ConsultationRepository consultationRepository) {
         this.consultationRepository = consultationRepository;
@@ -37,14 +38,27 @@ public class ConsultationService {
             LocalDateTime.now()
         );
         consultationRepository.save(consultation);
+        patientDataListeners.fire(consultation.getPatientId());
         return consultation;
     }
 
     public void updateConsultation(Consultation consultation) throws IOException {
-        consultationRepository.save(consultation);
+        Consultation previous = consultationRepository.save(consultation);
+        patientDataListeners.fire(previous == null ? null : previous.getPatientId(), consultation.getPatientId());
     }
 
     public void deleteConsultation(String id) throws IOException {
-        consultationRepository.deleteById(id);
+        Consultation removed = consultationRepository.deleteById(id);
+        if (removed != null) {
+            patientDataListeners.fire(removed.getPatientId());
+        }
+    }
+
+    public void addPatientDataListener(PatientDataListener listener) {
+        patientDataListeners.add(listener);
+    }
+
+    public void removePatientDataListener(PatientDataListener listener) {
+        patientDataListeners.remove(listener);
     }
 }
@@ -0,0 +1,240 @@
+package clinic.service;
+
+import clinic.model.CostLayer;
+import clinic.model.StockMovement;
+import clinic.service.InventoryService.CostingMethod;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cost layers per medicine for inventory valuation.
+ * FIFO keeps one layer per receipt and consumes the oldest first; moving average keeps a single
+ * pooled layer. Issues beyond the layered quantity are costed at the latest receipt cost (or the
+ * supplied fallback when nothing was received yet) and kept as a deficit carrying that cost as
+ * negative value. Later receipts settle the deficit first; the difference between their cost and the
+ * deficit's is a variance that joins the next layer created, so the value of a medicine always equals
+ * the sum of its movement amounts (StockBalance.value) and leaves with the units that carry it.
+ * The whole state can be snapshotted into a stock checkpoint and restored from it.
+ */
+final class CostLayerLedger {
+    private static final int UNIT_COST_SCALE = 4;
+    private static final int AMOUNT_SCALE = 2;
+
+    private static final class Layer {
+        private int quantity;
+        private BigDecimal value;
+
+        private Layer(int quantity, BigDecimal value) {
+            this.quantity = quantity;
+            this.value = value;
+        }
+
+        private BigDecimal take(int units) {
+            BigDecimal cost = units == quantity
+                ? value
+                : value.multiply(BigDecimal.valueOf(units)).divide(BigDecimal.valueOf(quantity), AMOUNT_SCALE, RoundingMode.HALF_UP);
+            quantity -= units;
+            value = value.subtract(cost);
+            return cost;
+        }
+    }
+
+    private static final class MedicineLayers {
+        private final Deque<Layer> layers = new ArrayDeque<>();
+        private int deficit;
+        private BigDecimal deficitValue = BigDecimal.ZERO;
+        private BigDecimal variance = BigDecimal.ZERO;
+        private BigDecimal lastUnitCost = BigDecimal.ZERO;
+    }
+
+    private final CostingMethod method;
+    private final Map<String, MedicineLayers> byMedicine = new HashMap<>();
+
+    CostLayerLedger(CostingMethod method) {
+        this.method = method;
+    }
+
+    static CostLayerLedger restore(CostingMethod method, Collection<CostLayer> snapshot) {
+        CostLayerLedger ledger = new CostLayerLedger(method);
+        for (CostLayer layer : snapshot) {
+            MedicineLayers state = ledger.byMedicine.computeIfAbsent(layer.getMedicineId(), key -> new MedicineLayers());
+            switch (layer.getKind()) {
+                case RECEIPT:
+                    state.layers.addLast(new Layer(layer.getQuantity(), layer.getValue()));
+                    break;
+                case DEFICIT:
+                    state.deficit = layer.getQuantity();
+                    state.deficitValue = layer.getValue();
+                    break;
+                case VARIANCE:
+                    state.variance = layer.getValue();
+                    break;
+                case LAST_UNIT_COST:
+                    state.lastUnitCost = layer.getValue();
+                    break;
+                default:
+                    throw new IllegalStateException("未知的成本层类型: " + layer.getKind());
+            }
+        }
+        return ledger;
+    }
+
+    CostingMethod getMethod() {
+        return method;
+    }
+
+    List<CostLayer> snapshot() {
+        List<CostLayer> snapshot = new ArrayList<>();
+        for (Map.Entry<String, MedicineLayers> entry : byMedicine.entrySet()) {
+            String medicineId = entry.getKey();
+            MedicineLayers state = entry.getValue();
+            for (Layer layer : state.layers) {
+                snapshot.add(new CostLayer(medicineId, CostLayer.Kind.RECEIPT, layer.quantity, layer.value));
+            }
+            if (state.deficit != 0) {
+                snapshot.add(new CostLayer(medicineId, CostLayer.Kind.DEFICIT, state.deficit, state.deficitValue));
+            }
+            if (state.variance.signum() != 0) {
+                snapshot.add(new CostLayer(medicineId, CostLayer.Kind.VARIANCE, 0, state.variance));
+            }
+            snapshot.add(new CostLayer(medicineId, CostLayer.Kind.LAST_UNIT_COST, 0, state.lastUnitCost));
+        }
+        return snapshot;
+    }
+
+    void apply(StockMovement movement) {
+        apply(movement, movement.getUnitCost());
+    }
+
+    void apply(StockMovement movement, BigDecimal fallbackUnitCost) {
+        if (movement.getQuantity() > 0) {
+            receive(movement.getMedicineId(), movement.getQuantity(), movement.getUnitCost(), movement.getTotalCost());
+        } else if (movement.getQuantity() < 0) {
+            issue(movement.getMedicineId(), -movement.getQuantity(), fallbackUnitCost, true);
+        }
+    }
+
+    BigDecimal quoteIssue(String medicineId, int quantity, BigDecimal fallbackUnitCost) {
+        return issue(medicineId, quantity, fallbackUnitCost, false);
+    }
+
+    BigDecimal averageUnitCost(String medicineId) {
+        MedicineLayers state = byMedicine.get(medicineId);
+        if (state == null) {
+            return BigDecimal.ZERO;
+        }
+        int quantity = 0;
+        BigDecimal value = BigDecimal.ZERO;
+        for (Layer layer : state.layers) {
+            quantity += layer.quantity;
+            value = value.add(layer.value);
+        }
+        return quantity == 0 ? state.lastUnitCost : value.divide(BigDecimal.valueOf(quantity), UNIT_COST_SCALE, RoundingMode.HALF_UP);
+    }
+
+    BigDecimal valueOf(String medicineId) {
+        MedicineLayers state = byMedicine.get(medicineId);
+        if (state == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal value = state.variance.subtract(state.deficitValue);
+        for (Layer layer : state.layers) {
+            value = value.add(layer.value);
+        }
+        return value;
+    }
+
+    Map<String, BigDecimal> valuation() {
+        Map<String, BigDecimal> values = new HashMap<>();
+        for (String medicineId : byMedicine.keySet()) {
+            values.put(medicineId, valueOf(medicineId));
+        }
+        return values;
+    }
+
+    private void receive(String medicineId, int quantity, BigDecimal unitCost, BigDecimal totalCost) {
+        MedicineLayers state = byMedicine.computeIfAbsent(medicineId, key -> new MedicineLayers());
+        boolean costed = unitCost != null && unitCost.signum() != 0;
+        BigDecimal cost = costed ? unitCost : averageUnitCost(medicineId);
+        BigDecimal value = costed && totalCost != null ? totalCost : costAt(cost, quantity);
+        state.lastUnitCost = cost;
+        int covered = Math.min(state.deficit, quantity);
+        if (covered > 0) {
+            BigDecimal coveredValue = portion(value, covered, quantity);
+            BigDecimal settled = portion(state.deficitValue, covered, state.deficit);
+            state.deficit -= covered;
+            state.deficitValue = state.deficitValue.subtract(settled);
+            state.variance = state.variance.add(coveredValue).subtract(settled);
+            value = value.subtract(coveredValue);
+        }
+        int remaining = quantity - covered;
+        if (remaining == 0) {
+            return;
+        }
+        value = value.add(state.variance);
+        state.variance = BigDecimal.ZERO;
+        Layer pooled = state.layers.peekLast();
+        if (method == CostingMethod.MOVING_AVERAGE && pooled != null) {
+            pooled.quantity += remaining;
+            pooled.value = pooled.value.add(value);
+        } else {
+            state.layers.addLast(new Layer(remaining, value));
+        }
+    }
+
+    private BigDecimal issue(String medicineId, int quantity, BigDecimal fallbackUnitCost, boolean commit) {
+        MedicineLayers state = byMedicine.get(medicineId);
+        if (state == null) {
+            if (!commit) {
+                return costAt(fallbackUnitCost, quantity);
+            }
+            state = byMedicine.computeIfAbsent(medicineId, key -> new MedicineLayers());
+        }
+        BigDecimal cost = BigDecimal.ZERO;
+        int remaining = quantity;
+        Iterator<Layer> layers = state.layers.iterator();
+        while (remaining > 0 && layers.hasNext()) {
+            Layer layer = layers.next();
+            int units = Math.min(remaining, layer.quantity);
+            if (commit) {
+                cost = cost.add(layer.take(units));
+                if (layer.quantity == 0) {
+                    layers.remove();
+                }
+            } else {
+                cost = cost.add(new Layer(layer.quantity, layer.value).take(units));
+            }
+            remaining -= units;
+        }
+        if (remaining > 0) {
+            BigDecimal unit = state.lastUnitCost.signum() != 0 ? state.lastUnitCost : fallbackUnitCost;
+            BigDecimal shortfall = costAt(unit, remaining);
+            cost = cost.add(shortfall);
+            if (commit) {
+                state.deficit += remaining;
+                state.deficitValue = state.deficitValue.add(shortfall);
+            }
+        }
+        return cost;
+    }
+
+    private static BigDecimal portion(BigDecimal value, int units, int of) {
+        return units == of
+            ? value
+            : value.multiply(BigDecimal.valueOf(units)).divide(BigDecimal.valueOf(of), AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal costAt(BigDecimal unitCost, int quantity) {
+        BigDecimal unit = unitCost == null ? BigDecimal.ZERO : unitCost;
+        return unit.multiply(BigDecimal.valueOf(quantity)).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -5,6 +5,7 @@ import clinic.persistence.CsvDataStore;
 import clinic.persistence.DoctorRepository;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 public class DoctorService {
@@ -46,4 +47,12 @@ public class DoctorService {
     public void deleteDoctor(String id) throws IOException {
         doctorRepository.deleteById(id);
     }
+
+    public void saveDoctors(Collection<Doctor> doctors) throws IOException {
+        doctorRepository.saveAll(doctors);
+    }
+
+    public void deleteDoctors(Collection<String> ids) throws IOException {
+        doctorRepository.deleteAllById(ids);
+    }
 }
@@ -10,6 +10,7 @@ import java.util.List;
 
 public class ExpertAdviceService {
     private final ExpertAdviceRepository expertAdviceRepository;
+    private final PatientDataListeners patientDataListeners = new PatientDataListeners();
 
     public ExpertAdviceService(ExpertAdviceRepository expertAdviceRepository) {
         this.expertAdviceRepository = expertAdviceRepository;
@@ -34,14 +35,27 @@ public class ExpertAdviceService {
             followUp
         );
         expertAdviceRepository.save(advice);
+        patientDataListeners.fire(advice.getPatientId());
         return advice;
     }
 
     public void updateAdvice(ExpertAdvice advice) throws IOException {
-        expertAdviceRepository.save(advice);
+        ExpertAdvice previous = expertAdviceRepository.save(advice);
+        patientDataListeners.fire(previous == null ? null : previous.getPatientId(), advice.getPatientId());
     }
 
     public void deleteAdvice(String id) throws IOException {
-        expertAdviceRepository.deleteById(id);
+        ExpertAdvice removed = expertAdviceRepository.deleteById(id);
+        if (removed != null) {
+            patientDataListeners.fire(removed.getPatientId());
+        }
+    }
+
+    public void addPatientDataListener(PatientDataListener listener) {
+        patientDataListeners.add(listener);
+    }
+
+    public void removePatientDataListener(PatientDataListener listener) {
+        patientDataListeners.remove(listener);
     }
 }
@@ -0,0 +1,150 @@
+package clinic.service;
+
+import clinic.model.InsuranceClaim;
+import clinic.model.Patient;
+import clinic.model.Payment;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payments pre-joined with the patient name and the latest insurance claim of each payment.
+ * Built once from the CSV files, then patched from payment and claim change events; patient names are
+ * reloaded on the next read after a patient changes.
+ */
+public class FinanceViewService {
+    private final PaymentService paymentService;
+    private final InsuranceClaimService claimService;
+    private final PatientService patientService;
+    private final Map<String, Payment> payments = new LinkedHashMap<>();
+    private final Map<String, InsuranceClaim> latestClaims = new HashMap<>();
+    private final Map<String, String> patientNames = new HashMap<>();
+    private boolean loaded;
+    private boolean patientNamesLoaded;
+
+    public static final class FinanceRow {
+        private final Payment payment;
+        private final String patientName;
+        private final InsuranceClaim claim;
+
+        private FinanceRow(Payment payment, String patientName, InsuranceClaim claim) {
+            this.payment = payment;
+            this.patientName = patientName;
+            this.claim = claim;
+        }
+
+        public Payment getPayment() {
+            return payment;
+        }
+
+        public String getPatientName() {
+            return patientName;
+        }
+
+        public String getClaimId() {
+            return claim == null ? null : claim.getId();
+        }
+
+        public InsuranceClaim.Status getClaimStatus() {
+            return claim == null ? null : claim.getStatus();
+        }
+
+        public BigDecimal getApprovedAmount() {
+            return claim == null ? null : claim.getApprovedAmount();
+        }
+    }
+
+    public FinanceViewService(PaymentService paymentService, InsuranceClaimService claimService, PatientService patientService) {
+        this.paymentService = paymentService;
+        this.claimService = claimService;
+        this.patientService = patientService;
+        paymentService.addPaymentListener((before, after) -> onPaymentChanged(after));
+        claimService.addClaimListener(this::onClaimsChanged);
+        patientService.addPatientDataListener(patientIds -> onPatientsChanged());
+    }
+
+    public synchronized List<FinanceRow> listRows() throws IOException {
+        load();
+        if (!patientNamesLoaded) {
+            loadPatientNames();
+        }
+        List<FinanceRow> rows = new ArrayList<>(payments.size());
+        for (Payment payment : payments.values()) {
+            rows.add(new FinanceRow(payment,
+                patientNames.getOrDefault(payment.getPatientId(), payment.getPatientId()),
+                latestClaims.get(payment.getId())));
+        }
+        return rows;
+    }
+
+    public synchronized void reload() {
+        loaded = false;
+    }
+
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        payments.clear();
+        latestClaims.clear();
+        for (Payment payment : paymentService.listAll()) {
+            payments.put(payment.getId(), payment);
+        }
+        for (InsuranceClaim claim : claimService.listAll()) {
+            putClaim(claim);
+        }
+        loadPatientNames();
+        loaded = true;
+    }
+
+    private void loadPatientNames() throws IOException {
+        patientNames.clear();
+        for (Patient patient : patientService.listPatients()) {
+            patientNames.put(patient.getId(), patient.getName());
+        }
+        patientNamesLoaded = true;
+    }
+
+    private synchronized void onPatientsChanged() {
+        patientNamesLoaded = false;
+    }
+
+    private synchronized void onPaymentChanged(Payment payment) {
+        if (!loaded) {
+            return;
+        }
+        payments.put(payment.getId(), payment);
+        if (!patientNames.containsKey(payment.getPatientId())) {
+            patientNamesLoaded = false;
+        }
+    }
+
+    private synchronized void onClaimsChanged(Collection<InsuranceClaim> claims) {
+        if (!loaded) {
+            return;
+        }
+        for (InsuranceClaim claim : claims) {
+            putClaim(claim);
+        }
+    }
+
+    private void putClaim(InsuranceClaim claim) {
+        InsuranceClaim current = latestClaims.get(claim.getPaymentId());
+        if (current == null || current.getId().equals(claim.getId()) || !submittedBefore(claim, current)) {
+            latestClaims.put(claim.getPaymentId(), claim);
+        }
+    }
+
+    private static boolean submittedBefore(InsuranceClaim claim, InsuranceClaim other) {
+        if (claim.getSubmittedAt() == null || other.getSubmittedAt() == null) {
+            return claim.getSubmittedAt() == null && other.getSubmittedAt() != null;
+        }
+        return claim.getSubmittedAt().isBefore(other.getSubmittedAt());
+    }
+}
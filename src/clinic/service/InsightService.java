@@ -9,24 +9,83 @@ import clinic.model.WorkProgress;
 import clinic.util.DoctorMatcher;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Period;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Text insights for patients and doctors.
+ * Patient insights are cached per patient id; the five source services report which patients their
+ * writes touched, and only those entries are dropped. A generation counter keeps an insight that was
+ * being built while its sources changed from entering the cache, and the whole cache is dropped when
+ * the date changes because insights include the patient's age.
+ * The independent table loads behind a weekly summary run concurrently on a small daemon pool,
+ * optionally bounded by a deadline (CLINIC_INSIGHT_DEADLINE_MILLIS / clinic.insight.deadline.millis).
+ * Batch weekly summaries scan each table once, group rows by resolved doctor and render in parallel.
+ */
 public class InsightService {
     private static final int MAX_CASE_ITEMS = 3;
     private static final int MAX_CONSULTATION_ITEMS = 3;
     private static final int MAX_ADVICE_ITEMS = 3;
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int LOADER_THREADS = 5;
+
+    @FunctionalInterface
+    private interface TableLoader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * Maps the free-form doctor references found in source rows to doctor ids, matching each distinct
+     * reference against the doctor list only once.
+     */
+    private static final class DoctorResolver {
+        private final List<Doctor> doctors;
+        private final Map<String, List<String>> resolved = new HashMap<>();
+
+        private DoctorResolver(List<Doctor> doctors) {
+            this.doctors = doctors;
+        }
+
+        private <T> void assign(String reference, T item, Map<String, List<T>> byDoctor) {
+            if (reference == null) {
+                return;
+            }
+            List<String> doctorIds = resolved.computeIfAbsent(reference, key -> doctors.stream()
+                .filter(doctor -> DoctorMatcher.matches(key, doctor))
+                .map(Doctor::getId)
+                .distinct()
+                .collect(Collectors.toList()));
+            for (String doctorId : doctorIds) {
+                byDoctor.computeIfAbsent(doctorId, key -> new ArrayList<>()).add(item);
+            }
+        }
+    }
 
     private final PatientService patientService;
     private final DoctorService doctorService;
@@ -34,6 +93,15 @@ public class InsightService {
     private final ConsultationService consultationService;
     private final WorkProgressService workProgressService;
     private final ExpertAdviceService expertAdviceService;
+    private final Map<String, String> patientInsights = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile LocalDate insightsDate = LocalDate.now();
+    private final Duration loadDeadline = resolveLoadDeadline();
+    private final ExecutorService loader = Executors.newFixedThreadPool(LOADER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "clinic-insight-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public InsightService(
         PatientService patientService,
@@ -49,9 +117,47 @@ public class InsightService {
         this.consultationService = Objects.requireNonNull(consultationService);
         this.workProgressService = Objects.requireNonNull(workProgressService);
         this.expertAdviceService = Objects.requireNonNull(expertAdviceService);
+        PatientDataListener invalidator = this::invalidatePatients;
+        patientService.addPatientDataListener(invalidator);
+        caseRecordService.addPatientDataListener(invalidator);
+        consultationService.addPatientDataListener(invalidator);
+        workProgressService.addPatientDataListener(invalidator);
+        expertAdviceService.addPatientDataListener(invalidator);
     }
 
     public String buildPatientInsight(String patientId) throws IOException {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(insightsDate)) {
+            synchronized (patientInsights) {
+                if (!today.equals(insightsDate)) {
+                    generation.incrementAndGet();
+                    patientInsights.clear();
+                    insightsDate = today;
+                }
+            }
+        }
+        String cached = patientInsights.get(patientId);
+        if (cached != null) {
+            return cached;
+        }
+        long startedAt = generation.get();
+        String insight = renderPatientInsight(patientId);
+        synchronized (patientInsights) {
+            if (generation.get() == startedAt && today.equals(insightsDate)) {
+                patientInsights.put(patientId, insight);
+            }
+        }
+        return insight;
+    }
+
+    private void invalidatePatients(Collection<String> patientIds) {
+        synchronized (patientInsights) {
+            generation.incrementAndGet();
+            patientInsights.keySet().removeAll(patientIds);
+        }
+    }
+
+    private String renderPatientInsight(String patientId) throws IOException {
         Patient patient = locatePatient(patientId);
         List<CaseRecord> caseRecords = caseRecordService.listByPatient(patientId);
         List<Consultation> consultations = consultationService.listByPatient(patientId);
@@ -152,30 +258,111 @@ public class InsightService {
     }
 
     public String buildDoctorWeeklySummary(String doctorId, LocalDate reference) throws IOException {
-        Doctor doctor = locateDoctor(doctorId);
+        return buildDoctorWeeklySummary(doctorId, reference, loadDeadline);
+    }
+
+    public String buildDoctorWeeklySummary(String doctorId, LocalDate reference, Duration deadline) throws IOException {
+        Future<List<Doctor>> doctors = loadAsync(doctorService::listDoctors);
+        Future<List<WorkProgress>> progress = loadAsync(workProgressService::listAll);
+        Future<List<ExpertAdvice>> advices = loadAsync(expertAdviceService::listAll);
+        Future<List<Consultation>> consultations = loadAsync(consultationService::listConsultations);
+        Future<List<Patient>> patients = loadAsync(patientService::listPatients);
+        await(deadline, doctors, progress, advices, consultations, patients);
+
+        Doctor doctor = locateDoctor(resultOf(doctors), doctorId);
         LocalDate end = reference == null ? LocalDate.now() : reference;
         LocalDate start = end.minusDays(6);
 
-        List<WorkProgress> progressItems = workProgressService.listAll().stream()
+        List<WorkProgress> progressItems = resultOf(progress).stream()
             .filter(item -> DoctorMatcher.matches(item.getOwnerDoctorId(), doctor))
             .filter(item -> item.getLastUpdated() != null)
             .filter(item -> !item.getLastUpdated().isBefore(start) && !item.getLastUpdated().isAfter(end))
             .collect(Collectors.toList());
 
-        List<ExpertAdvice> adviceItems = expertAdviceService.listAll().stream()
+        List<ExpertAdvice> adviceItems = resultOf(advices).stream()
             .filter(item -> DoctorMatcher.matches(item.getDoctorId(), doctor))
             .filter(item -> item.getAdviceDate() != null)
             .filter(item -> !item.getAdviceDate().isBefore(start) && !item.getAdviceDate().isAfter(end))
             .collect(Collectors.toList());
 
-        List<Consultation> consultationItems = consultationService.listConsultations().stream()
+        List<Consultation> consultationItems = resultOf(consultations).stream()
             .filter(item -> DoctorMatcher.matches(item.getDoctorId(), doctor))
             .filter(item -> isWithin(item.getCreatedAt(), start, end))
             .collect(Collectors.toList());
 
-        Map<String, String> patientNames = patientService.listPatients().stream()
+        Map<String, String> patientNames = resultOf(patients).stream()
             .collect(Collectors.toMap(Patient::getId, Patient::getName));
 
+        return renderWeeklySummary(doctor, start, end, progressItems, adviceItems, consultationItems, patientNames);
+    }
+
+    public Map<String, String> buildWeeklySummaries(LocalDate reference) throws IOException {
+        Future<List<Doctor>> doctors = loadAsync(doctorService::listDoctors);
+        Future<List<WorkProgress>> progress = loadAsync(workProgressService::listAll);
+        Future<List<ExpertAdvice>> advices = loadAsync(expertAdviceService::listAll);
+        Future<List<Consultation>> consultations = loadAsync(consultationService::listConsultations);
+        Future<List<Patient>> patients = loadAsync(patientService::listPatients);
+        await(loadDeadline, doctors, progress, advices, consultations, patients);
+
+        List<Doctor> doctorList = resultOf(doctors);
+        LocalDate end = reference == null ? LocalDate.now() : reference;
+        LocalDate start = end.minusDays(6);
+        DoctorResolver resolver = new DoctorResolver(doctorList);
+        Map<String, List<WorkProgress>> progressByDoctor = new HashMap<>();
+        Map<String, List<ExpertAdvice>> adviceByDoctor = new HashMap<>();
+        Map<String, List<Consultation>> consultationsByDoctor = new HashMap<>();
+        for (WorkProgress item : resultOf(progress)) {
+            if (item.getLastUpdated() != null && !item.getLastUpdated().isBefore(start) && !item.getLastUpdated().isAfter(end)) {
+                resolver.assign(item.getOwnerDoctorId(), item, progressByDoctor);
+            }
+        }
+        for (ExpertAdvice item : resultOf(advices)) {
+            if (item.getAdviceDate() != null && !item.getAdviceDate().isBefore(start) && !item.getAdviceDate().isAfter(end)) {
+                resolver.assign(item.getDoctorId(), item, adviceByDoctor);
+            }
+        }
+        for (Consultation item : resultOf(consultations)) {
+            if (isWithin(item.getCreatedAt(), start, end)) {
+                resolver.assign(item.getDoctorId(), item, consultationsByDoctor);
+            }
+        }
+        Map<String, String> patientNames = resultOf(patients).stream()
+            .collect(Collectors.toMap(Patient::getId, Patient::getName));
+
+        Map<String, String> rendered = new ConcurrentHashMap<>();
+        doctorList.parallelStream().forEach(doctor -> rendered.put(doctor.getId(), renderWeeklySummary(
+            doctor,
+            start,
+            end,
+            progressByDoctor.getOrDefault(doctor.getId(), List.of()),
+            adviceByDoctor.getOrDefault(doctor.getId(), List.of()),
+            consultationsByDoctor.getOrDefault(doctor.getId(), List.of()),
+            patientNames
+        )));
+        Map<String, String> summaries = new LinkedHashMap<>();
+        for (Doctor doctor : doctorList) {
+            summaries.put(doctor.getId(), rendered.get(doctor.getId()));
+        }
+        return summaries;
+    }
+
+    public Map<String, Path> exportWeeklySummaries(LocalDate reference, Path directory) throws IOException {
+        LocalDate end = reference == null ? LocalDate.now() : reference;
+        Files.createDirectories(directory);
+        Map<String, Path> files = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : buildWeeklySummaries(end).entrySet()) {
+            Path file = directory.resolve("weekly_" + end + "_" + entry.getKey() + ".txt");
+            Files.writeString(file, entry.getValue(), StandardCharsets.UTF_8);
+            files.put(entry.getKey(), file);
+        }
+        return files;
+    }
+
+    private String renderWeeklySummary(Doctor doctor, LocalDate start, LocalDate end,
+                                       List<WorkProgress> progressItems,
+                                       List<ExpertAdvice> adviceItems,
+                                       List<Consultation> consultationItems,
+                                       Map<String, String> patientNames) {
         StringBuilder builder = new StringBuilder();
         builder.append("医生周报\n------------------------------\n");
         builder.append("医生: ").append(doctor.getName());
@@ -253,8 +440,63 @@ public class InsightService {
             .orElseThrow(() -> new IllegalArgumentException("未找到指定患者"));
     }
 
-    private Doctor locateDoctor(String doctorId) throws IOException {
-        return doctorService.listDoctors().stream()
+    private <T> Future<T> loadAsync(TableLoader<T> tableLoader) {
+        return loader.submit(tableLoader::load);
+    }
+
+    private void await(Duration deadline, Future<?>... loads) throws IOException {
+        long deadlineNanos = deadline == null ? 0 : System.nanoTime() + deadline.toNanos();
+        boolean completed = false;
+        try {
+            for (Future<?> load : loads) {
+                if (deadline == null) {
+                    load.get();
+                } else {
+                    load.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            }
+            completed = true;
+        } catch (TimeoutException ex) {
+            throw new IOException("加载数据超时（" + deadline.toMillis() + " 毫秒）", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("加载数据被中断", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("加载数据失败", cause);
+        } finally {
+            if (!completed) {
+                for (Future<?> load : loads) {
+                    load.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static <T> T resultOf(Future<T> load) {
+        try {
+            return load.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new IllegalStateException("数据加载尚未完成", ex);
+        }
+    }
+
+    private static Duration resolveLoadDeadline() {
+        String fromEnv = System.getenv("CLINIC_INSIGHT_DEADLINE_MILLIS");
+        long millis = fromEnv != null && !fromEnv.isBlank()
+            ? Long.parseLong(fromEnv.trim())
+            : Long.getLong("clinic.insight.deadline.millis", 0L);
+        return millis > 0 ? Duration.ofMillis(millis) : null;
+    }
+
+    private Doctor locateDoctor(List<Doctor> doctors, String doctorId) {
+        return doctors.stream()
             .filter(doctor -> doctor.getId().equals(doctorId))
             .findFirst()
             .orElseThrow(() -> new IllegalArgumentException("未找到指定医生"));
@@ -2,20 +2,97 @@ package clinic.service;
 
 import clinic.model.InsuranceClaim;
 import clinic.model.InsuranceClaim.Status;
+import clinic.model.Payment;
+import clinic.persistence.ColumnarArchive;
 import clinic.persistence.CsvDataStore;
 import clinic.persistence.InsuranceClaimRepository;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class InsuranceClaimService {
+    private static final int ADJUDICATION_BATCH = 256;
+
+    public static final Map<String, CoverageRule> DEFAULT_COVERAGE_RULES = Map.of(
+        "PUBLIC", new CoverageRule(new BigDecimal("0.90"), new BigDecimal("20000.00")),
+        "COMMERCIAL", new CoverageRule(BigDecimal.ONE, new BigDecimal("100000.00"))
+    );
+
     private final InsuranceClaimRepository claimRepository;
+    private final PaymentService paymentService;
+    private final List<ClaimListener> listeners = new CopyOnWriteArrayList<>();
+
+    public interface ClaimListener {
+        void onClaimsChanged(Collection<InsuranceClaim> claims);
+    }
+
+    public static final class CoverageRule {
+        private final BigDecimal maxRatio;
+        private final BigDecimal capAmount;
+
+        public CoverageRule(BigDecimal maxRatio, BigDecimal capAmount) {
+            this.maxRatio = maxRatio;
+            this.capAmount = capAmount;
+        }
+
+        public BigDecimal getMaxRatio() {
+            return maxRatio;
+        }
+
+        public BigDecimal getCapAmount() {
+            return capAmount;
+        }
+    }
+
+    public static final class AdjudicationResult {
+        private final List<InsuranceClaim> approved;
+        private final List<InsuranceClaim> rejected;
+        private final Map<String, String> skipped;
 
-    public InsuranceClaimService(InsuranceClaimRepository claimRepository) {
+        private AdjudicationResult(List<InsuranceClaim> approved, List<InsuranceClaim> rejected, Map<String, String> skipped) {
+            this.approved = approved;
+            this.rejected = rejected;
+            this.skipped = skipped;
+        }
+
+        public List<InsuranceClaim> getApproved() {
+            return approved;
+        }
+
+        public List<InsuranceClaim> getRejected() {
+            return rejected;
+        }
+
+        public Map<String, String> getSkipped() {
+            return skipped;
+        }
+
+        public BigDecimal getApprovedTotal() {
+            BigDecimal total = BigDecimal.ZERO;
+            for (InsuranceClaim claim : approved) {
+                total = total.add(claim.getApprovedAmount());
+            }
+            return total;
+        }
+    }
+
+    public InsuranceClaimService(InsuranceClaimRepository claimRepository, PaymentService paymentService) {
         this.claimRepository = claimRepository;
+        this.paymentService = paymentService;
     }
 
     public List<InsuranceClaim> listAll() throws IOException {
@@ -48,6 +125,7 @@ public class InsuranceClaimService {
             notes
         );
         claimRepository.save(claim);
+        notifyChanged(List.of(claim));
         return claim;
     }
 
@@ -56,6 +134,7 @@ public class InsuranceClaimService {
             .orElseThrow(() -> new IllegalArgumentException("未找到医保理赔"));
         InsuranceClaim updated = claim.withStatus(Status.APPROVED, approvedAmount, LocalDateTime.now(), notes);
         claimRepository.save(updated);
+        notifyChanged(List.of(updated));
         return updated;
     }
 
@@ -64,14 +143,201 @@ public class InsuranceClaimService {
             .orElseThrow(() -> new IllegalArgumentException("未找到医保理赔"));
         InsuranceClaim updated = claim.withStatus(Status.REJECTED, BigDecimal.ZERO, LocalDateTime.now(), notes);
         claimRepository.save(updated);
+        notifyChanged(List.of(updated));
         return updated;
     }
 
+    public Path exportColumnarArchive(LocalDateTime closedBefore) throws IOException {
+        return claimRepository.writeColumnarArchive(closedBefore);
+    }
+
+    public BigDecimal sumArchivedApprovedAmount(LocalDateTime from, LocalDateTime to) throws IOException {
+        Optional<ColumnarArchive> archive = claimRepository.openColumnarArchive();
+        if (archive.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        LocalDateTime closedBefore = archive.get().getClosedBefore();
+        Map<String, ColumnarArchive.Column> columns = archive.get().scan("status", "processedAt", "approvedAmount");
+        ColumnarArchive.Column status = columns.get("status");
+        ColumnarArchive.Column processedAt = columns.get("processedAt");
+        ColumnarArchive.Column approved = columns.get("approvedAmount");
+        long total = 0;
+        for (int i = 0; i < status.size(); i++) {
+            String value = status.getString(i);
+            boolean approvedClaim = Status.APPROVED.name().equals(value) || Status.PAID.name().equals(value);
+            if (!approvedClaim || processedAt.isNull(i) || approved.isNull(i)) {
+                continue;
+            }
+            LocalDateTime time = processedAt.getTimestamp(i);
+            if (time.isBefore(closedBefore) && (from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to))) {
+                total += approved.getUnscaled(i);
+            }
+        }
+        return BigDecimal.valueOf(total, approved.getScale());
+    }
+
+    public void addClaimListener(ClaimListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeClaimListener(ClaimListener listener) {
+        listeners.remove(listener);
+    }
+
+    public AdjudicationResult adjudicateSubmitted() throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (InsuranceClaim claim : claimRepository.findAll()) {
+            if (claim.getStatus() == Status.SUBMITTED) {
+                ids.add(claim.getId());
+            }
+        }
+        return adjudicate(ids, DEFAULT_COVERAGE_RULES);
+    }
+
+    public synchronized AdjudicationResult adjudicate(Collection<String> claimIds, Map<String, CoverageRule> rules) throws IOException {
+        Map<String, InsuranceClaim> claims = new HashMap<>();
+        for (InsuranceClaim claim : claimRepository.findAll()) {
+            claims.put(claim.getId(), claim);
+        }
+        Map<String, Payment> payments = new HashMap<>();
+        for (Payment payment : paymentService.listAll()) {
+            payments.put(payment.getId(), payment);
+        }
+        Map<String, String> skipped = new LinkedHashMap<>();
+        List<InsuranceClaim> candidates = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(claimIds)) {
+            InsuranceClaim claim = claims.get(id);
+            if (claim == null) {
+                skipped.put(id, "未找到医保理赔");
+            } else if (claim.getStatus() != Status.SUBMITTED) {
+                skipped.put(id, "理赔状态为 " + claim.getStatus() + "，无需审核");
+            } else {
+                candidates.add(claim);
+            }
+        }
+        InsuranceClaim[] decisions = new InsuranceClaim[candidates.size()];
+        LocalDateTime processedAt = LocalDateTime.now();
+        ForkJoinPool.commonPool().invoke(new AdjudicationTask(candidates, decisions, payments, rules, processedAt, 0, decisions.length));
+
+        Map<String, BigDecimal> approvedTotals = new HashMap<>();
+        for (InsuranceClaim claim : claims.values()) {
+            if ((claim.getStatus() == Status.APPROVED || claim.getStatus() == Status.PAID) && claim.getApprovedAmount() != null) {
+                approvedTotals.merge(claim.getPaymentId(), claim.getApprovedAmount(), BigDecimal::add);
+            }
+        }
+        List<InsuranceClaim> approved = new ArrayList<>();
+        List<InsuranceClaim> rejected = new ArrayList<>();
+        Map<String, String> approvedByPayment = new LinkedHashMap<>();
+        for (int i = 0; i < decisions.length; i++) {
+            InsuranceClaim decision = decisions[i];
+            if (decision.getStatus() == Status.APPROVED) {
+                BigDecimal total = approvedTotals.getOrDefault(decision.getPaymentId(), BigDecimal.ZERO).add(decision.getApprovedAmount());
+                if (total.compareTo(payments.get(decision.getPaymentId()).getAmount()) > 0) {
+                    decision = candidates.get(i).withStatus(Status.REJECTED, BigDecimal.ZERO, processedAt,
+                        "批量审核驳回：同一支付的核准总额超过支付金额");
+                    decisions[i] = decision;
+                } else {
+                    approvedTotals.put(decision.getPaymentId(), total);
+                }
+            }
+            if (decision.getStatus() == Status.APPROVED) {
+                approved.add(decision);
+                approvedByPayment.put(decision.getPaymentId(), decision.getId());
+            } else {
+                rejected.add(decision);
+            }
+        }
+        if (decisions.length > 0) {
+            claimRepository.saveAll(List.of(decisions));
+            try {
+                paymentService.linkApprovedClaims(approvedByPayment);
+            } catch (IOException | RuntimeException ex) {
+                claimRepository.saveAll(candidates);
+                throw ex;
+            }
+            notifyChanged(List.of(decisions));
+        }
+        return new AdjudicationResult(approved, rejected, skipped);
+    }
+
     public InsuranceClaim completePayout(String claimId) throws IOException {
         InsuranceClaim claim = claimRepository.findById(claimId)
             .orElseThrow(() -> new IllegalArgumentException("未找到医保理赔"));
         InsuranceClaim updated = claim.withStatus(Status.PAID, claim.getApprovedAmount(), LocalDateTime.now(), claim.getNotes());
         claimRepository.save(updated);
+        notifyChanged(List.of(updated));
         return updated;
     }
+
+    private void notifyChanged(Collection<InsuranceClaim> claims) {
+        for (ClaimListener listener : listeners) {
+            listener.onClaimsChanged(claims);
+        }
+    }
+
+    private static InsuranceClaim decide(InsuranceClaim claim, Payment payment, Map<String, CoverageRule> rules, LocalDateTime processedAt) {
+        String reason = null;
+        CoverageRule rule = rules.get(claim.getInsuranceType());
+        BigDecimal ratio = claim.getCoverageRatio();
+        BigDecimal claimed = claim.getClaimedAmount();
+        if (payment == null) {
+            reason = "未找到关联支付";
+        } else if (rule == null) {
+            reason = "医保类型 " + claim.getInsuranceType() + " 不在承保范围";
+        } else if (ratio == null || ratio.signum() <= 0 || ratio.compareTo(BigDecimal.ONE) > 0) {
+            reason = "报销比例无效";
+        } else if (claimed == null || claimed.signum() <= 0) {
+            reason = "申请金额无效";
+        } else if (claimed.compareTo(payment.getAmount()) > 0) {
+            reason = "申请金额超过支付金额";
+        }
+        if (reason != null) {
+            return claim.withStatus(Status.REJECTED, BigDecimal.ZERO, processedAt, "批量审核驳回：" + reason);
+        }
+        BigDecimal effectiveRatio = ratio.min(rule.getMaxRatio());
+        BigDecimal approvedAmount = claimed.multiply(effectiveRatio).setScale(2, RoundingMode.HALF_UP);
+        String notes = "批量审核通过，按 " + effectiveRatio.movePointRight(2).stripTrailingZeros().toPlainString() + "% 报销";
+        if (rule.getCapAmount() != null && approvedAmount.compareTo(rule.getCapAmount()) > 0) {
+            approvedAmount = rule.getCapAmount();
+            notes += "，封顶 " + rule.getCapAmount().toPlainString();
+        }
+        return claim.withStatus(Status.APPROVED, approvedAmount, processedAt, notes);
+    }
+
+    private static final class AdjudicationTask extends RecursiveAction {
+        private final List<InsuranceClaim> claims;
+        private final InsuranceClaim[] decisions;
+        private final Map<String, Payment> payments;
+        private final Map<String, CoverageRule> rules;
+        private final LocalDateTime processedAt;
+        private final int from;
+        private final int to;
+
+        private AdjudicationTask(List<InsuranceClaim> claims, InsuranceClaim[] decisions, Map<String, Payment> payments,
+                                 Map<String, CoverageRule> rules, LocalDateTime processedAt, int from, int to) {
+            this.claims = claims;
+            this.decisions = decisions;
+            this.payments = payments;
+            this.rules = rules;
+            this.processedAt = processedAt;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ADJUDICATION_BATCH) {
+                for (int i = from; i < to; i++) {
+                    InsuranceClaim claim = claims.get(i);
+                    decisions[i] = decide(claim, payments.get(claim.getPaymentId()), rules, processedAt);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                new AdjudicationTask(claims, decisions, payments, rules, processedAt, from, middle),
+                new AdjudicationTask(claims, decisions, payments, rules, processedAt, middle, to)
+            );
+        }
+    }
 }
@@ -1,20 +1,70 @@
 package clinic.service;
 
+import clinic.model.CostLayer;
+import clinic.model.StockBalance;
 import clinic.model.StockMovement;
 import clinic.model.StockMovement.MovementType;
+import clinic.persistence.ColumnarArchive;
 import clinic.persistence.CsvDataStore;
+import clinic.persistence.PartitionedCsvStore;
+import clinic.persistence.StockCheckpointRepository;
 import clinic.persistence.StockMovementRepository;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class InventoryService {
+    public enum CostingMethod {
+        FIFO,
+        MOVING_AVERAGE
+    }
+
+    public interface StockMovementListener {
+        void onStockMoved(StockMovement movement, int quantityBefore, int quantityAfter) throws IOException;
+    }
+
+    private static final int CHECKPOINT_EVERY_MOVEMENTS = 500;
+
     private final StockMovementRepository stockMovementRepository;
+    private final StockCheckpointRepository stockCheckpointRepository;
+    private final CostingMethod costingMethod;
+    private final Map<String, StockBalance> balances = new HashMap<>();
+    private final List<StockMovementListener> listeners = new CopyOnWriteArrayList<>();
+    private boolean balancesLoaded;
+    private int movementsSinceCheckpoint;
+    private CostLayerLedger costLayers;
 
-    public InventoryService(StockMovementRepository stockMovementRepository) {
+    public InventoryService(StockMovementRepository stockMovementRepository,
+                            StockCheckpointRepository stockCheckpointRepository) {
+        this(stockMovementRepository, stockCheckpointRepository, costingMethodFromEnvironment());
+    }
+
+    public InventoryService(StockMovementRepository stockMovementRepository,
+                            StockCheckpointRepository stockCheckpointRepository,
+                            CostingMethod costingMethod) {
         this.stockMovementRepository = stockMovementRepository;
+        this.stockCheckpointRepository = stockCheckpointRepository;
+        this.costingMethod = costingMethod;
+    }
+
+    public void addStockMovementListener(StockMovementListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeStockMovementListener(StockMovementListener listener) {
+        listeners.remove(listener);
     }
 
     public List<StockMovement> listAll() throws IOException {
@@ -25,7 +75,41 @@ public class InventoryService {
         return stockMovementRepository.findByMedicine(medicineId);
     }
 
-    public StockMovement recordInbound(String medicineId,
+    public List<StockMovement> listBetween(LocalDateTime from, LocalDateTime to) throws IOException {
+        return stockMovementRepository.findBetween(from, to);
+    }
+
+    public int archiveColdMonths() throws IOException {
+        return stockMovementRepository.archiveBefore(PartitionedCsvStore.archiveCutoff(YearMonth.now()));
+    }
+
+    public Path exportColumnarArchive(LocalDateTime closedBefore) throws IOException {
+        return stockMovementRepository.writeColumnarArchive(closedBefore);
+    }
+
+    public BigDecimal sumArchivedCost(MovementType type, LocalDateTime from, LocalDateTime to) throws IOException {
+        Optional<ColumnarArchive> archive = stockMovementRepository.openColumnarArchive();
+        if (archive.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        Map<String, ColumnarArchive.Column> columns = archive.get().scan("movementType", "occurredAt", "totalCost");
+        ColumnarArchive.Column movementType = columns.get("movementType");
+        ColumnarArchive.Column occurredAt = columns.get("occurredAt");
+        ColumnarArchive.Column totalCost = columns.get("totalCost");
+        long total = 0;
+        for (int i = 0; i < movementType.size(); i++) {
+            if (!type.name().equals(movementType.getString(i)) || occurredAt.isNull(i) || totalCost.isNull(i)) {
+                continue;
+            }
+            LocalDateTime time = occurredAt.getTimestamp(i);
+            if ((from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to))) {
+                total += totalCost.getUnscaled(i);
+            }
+        }
+        return BigDecimal.valueOf(total, totalCost.getScale());
+    }
+
+    public synchronized StockMovement recordInbound(String medicineId,
                                        int quantity,
                                        BigDecimal unitCost,
                                        String referenceType,
@@ -35,12 +119,15 @@ public class InventoryService {
         if (quantity <= 0) {
             throw new IllegalArgumentException("入库数量必须大于0");
         }
+        BigDecimal movementUnitCost = unitCost == null || unitCost.signum() == 0
+            ? costLayers().averageUnitCost(medicineId)
+            : unitCost;
         StockMovement movement = new StockMovement(
             CsvDataStore.randomId(),
             medicineId,
             MovementType.INBOUND,
             quantity,
-            unitCost,
+            movementUnitCost,
             null,
             LocalDateTime.now(),
             referenceType,
@@ -48,11 +135,10 @@ public class InventoryService {
             operatorId,
             notes
         );
-        stockMovementRepository.save(movement);
-        return movement;
+        return record(movement, unitCost);
     }
 
-    public StockMovement recordOutbound(String medicineId,
+    public synchronized StockMovement recordOutbound(String medicineId,
                                         int quantity,
                                         BigDecimal unitCost,
                                         String referenceType,
@@ -62,58 +148,266 @@ public class InventoryService {
         if (quantity <= 0) {
             throw new IllegalArgumentException("出库数量必须大于0");
         }
+        BigDecimal cost = costLayers().quoteIssue(medicineId, quantity, unitCost);
         StockMovement movement = new StockMovement(
             CsvDataStore.randomId(),
             medicineId,
             MovementType.OUTBOUND,
             -Math.abs(quantity),
-            unitCost,
-            null,
+            unitCostOf(cost, quantity),
+            cost.negate(),
             LocalDateTime.now(),
             referenceType,
             referenceId,
             operatorId,
             notes
         );
-        stockMovementRepository.save(movement);
-        return movement;
+        return record(movement, unitCost);
     }
 
-    public StockMovement recordAdjustment(String medicineId,
+    public synchronized StockMovement recordAdjustment(String medicineId,
                                           int quantityChange,
                                           BigDecimal unitCost,
                                           String reason,
                                           String operatorId) throws IOException {
+        BigDecimal movementUnitCost = unitCost;
+        BigDecimal totalCost = null;
+        if (quantityChange < 0) {
+            BigDecimal cost = costLayers().quoteIssue(medicineId, -quantityChange, unitCost);
+            movementUnitCost = unitCostOf(cost, -quantityChange);
+            totalCost = cost.negate();
+        } else if (unitCost == null || unitCost.signum() == 0) {
+            movementUnitCost = costLayers().averageUnitCost(medicineId);
+        }
         StockMovement movement = new StockMovement(
             CsvDataStore.randomId(),
             medicineId,
             MovementType.ADJUSTMENT,
             quantityChange,
-            unitCost,
-            null,
+            movementUnitCost,
+            totalCost,
             LocalDateTime.now(),
             "ADJUSTMENT",
             null,
             operatorId,
             reason
         );
-        stockMovementRepository.save(movement);
-        return movement;
+        return record(movement, unitCost);
+    }
+
+    public synchronized List<StockMovement> recordOutbounds(Collection<StockMovement> requests) throws IOException {
+        for (StockMovement request : requests) {
+            if (request.getQuantity() == 0) {
+                throw new IllegalArgumentException("出库数量必须大于0");
+            }
+        }
+        Map<String, StockBalance> current = balances();
+        CostLayerLedger layers = costLayers();
+        LocalDateTime now = LocalDateTime.now();
+        List<StockMovement> movements = new ArrayList<>(requests.size());
+        List<Integer> quantitiesBefore = new ArrayList<>(requests.size());
+        for (StockMovement request : requests) {
+            int quantity = Math.abs(request.getQuantity());
+            BigDecimal cost = layers.quoteIssue(request.getMedicineId(), quantity, request.getUnitCost());
+            StockMovement movement = new StockMovement(
+                request.getId(),
+                request.getMedicineId(),
+                MovementType.OUTBOUND,
+                -quantity,
+                unitCostOf(cost, quantity),
+                cost.negate(),
+                now,
+                request.getReferenceType(),
+                request.getReferenceId(),
+                request.getOperatorId(),
+                request.getNotes()
+            );
+            layers.apply(movement, request.getUnitCost());
+            quantitiesBefore.add(quantityOf(current, movement.getMedicineId()));
+            applyToBalance(current, movement);
+            movements.add(movement);
+        }
+        try {
+            stockMovementRepository.saveAll(movements);
+        } catch (IOException | RuntimeException ex) {
+            balancesLoaded = false;
+            costLayers = null;
+            throw ex;
+        }
+        movementsSinceCheckpoint += movements.size();
+        if (movementsSinceCheckpoint >= CHECKPOINT_EVERY_MOVEMENTS) {
+            createCheckpoint();
+        }
+        for (int i = 0; i < movements.size(); i++) {
+            StockMovement movement = movements.get(i);
+            int before = quantitiesBefore.get(i);
+            fireStockMoved(movement, before, before + movement.getQuantity());
+        }
+        return movements;
+    }
+
+    public synchronized BigDecimal calculateInventoryValue(String medicineId) throws IOException {
+        return costLayers().valueOf(medicineId);
     }
 
-    public BigDecimal calculateInventoryValue(String medicineId) throws IOException {
+    public CostingMethod getCostingMethod() {
+        return costingMethod;
+    }
+
+    public synchronized Map<String, BigDecimal> revalueInventory() throws IOException {
+        return costLayers().valuation();
+    }
+
+    public synchronized BigDecimal calculateCostOfGoodsSold(LocalDateTime from, LocalDateTime to) throws IOException {
         BigDecimal total = BigDecimal.ZERO;
-        for (StockMovement movement : stockMovementRepository.findByMedicine(medicineId)) {
-            total = total.add(movement.getTotalCost());
+        for (StockMovement movement : stockMovementRepository.findBetween(from, to)) {
+            if (movement.getQuantity() < 0) {
+                total = total.subtract(movement.getTotalCost());
+            }
         }
         return total;
     }
 
-    public int calculateOnHandQuantity(String medicineId) throws IOException {
-        int total = 0;
-        for (StockMovement movement : stockMovementRepository.findByMedicine(medicineId)) {
-            total += movement.getQuantity();
+    public synchronized int calculateOnHandQuantity(String medicineId) throws IOException {
+        return getBalance(medicineId).getQuantity();
+    }
+
+    public synchronized StockBalance getBalance(String medicineId) throws IOException {
+        StockBalance balance = balances().get(medicineId);
+        return balance == null ? StockBalance.empty(medicineId) : balance;
+    }
+
+    public synchronized Map<String, StockBalance> listBalances() throws IOException {
+        return new HashMap<>(balances());
+    }
+
+    public synchronized StockBalance getBalanceAsOf(String medicineId, LocalDateTime time) throws IOException {
+        StockBalance balance = listBalancesAsOf(time).get(medicineId);
+        return balance == null ? StockBalance.empty(medicineId) : balance;
+    }
+
+    public synchronized Map<String, StockBalance> listBalancesAsOf(LocalDateTime time) throws IOException {
+        Map<String, StockBalance> asOf = new HashMap<>();
+        LocalDateTime checkpointAt = restoreCheckpoint(asOf, time);
+        for (StockMovement movement : stockMovementRepository.findBetween(checkpointAt, time)) {
+            if (checkpointAt == null || movement.getOccurredAt().isAfter(checkpointAt)) {
+                applyToBalance(asOf, movement);
+            }
         }
-        return total;
+        return asOf;
+    }
+
+    public synchronized LocalDateTime createCheckpoint() throws IOException {
+        LocalDateTime checkpointAt = LocalDateTime.now();
+        stockCheckpointRepository.append(checkpointAt, balances().values(), costingMethod.name(), costLayers().snapshot());
+        movementsSinceCheckpoint = 0;
+        return checkpointAt;
+    }
+
+    public synchronized boolean createCheckpointIfNeeded() throws IOException {
+        balances();
+        if (movementsSinceCheckpoint == 0) {
+            return false;
+        }
+        createCheckpoint();
+        return true;
+    }
+
+    public synchronized void reloadBalances() throws IOException {
+        balancesLoaded = false;
+        costLayers = null;
+        balances();
+    }
+
+    private StockMovement record(StockMovement movement, BigDecimal fallbackUnitCost) throws IOException {
+        Map<String, StockBalance> current = balances();
+        CostLayerLedger layers = costLayers();
+        stockMovementRepository.save(movement);
+        int before = quantityOf(current, movement.getMedicineId());
+        applyToBalance(current, movement);
+        layers.apply(movement, fallbackUnitCost);
+        if (++movementsSinceCheckpoint >= CHECKPOINT_EVERY_MOVEMENTS) {
+            createCheckpoint();
+        }
+        fireStockMoved(movement, before, before + movement.getQuantity());
+        return movement;
+    }
+
+    private Map<String, StockBalance> balances() throws IOException {
+        if (!balancesLoaded) {
+            balances.clear();
+            LocalDateTime checkpointAt = restoreCheckpoint(balances, null);
+            movementsSinceCheckpoint = 0;
+            for (StockMovement movement : stockMovementRepository.findBetween(checkpointAt, null)) {
+                if (checkpointAt == null || movement.getOccurredAt().isAfter(checkpointAt)) {
+                    applyToBalance(balances, movement);
+                    movementsSinceCheckpoint++;
+                }
+            }
+            balancesLoaded = true;
+        }
+        return balances;
+    }
+
+    private CostLayerLedger costLayers() throws IOException {
+        if (costLayers == null) {
+            Map.Entry<LocalDateTime, List<StockBalance>> checkpoint = stockCheckpointRepository.findLatestAtOrBefore(null);
+            Optional<List<CostLayer>> snapshot = checkpoint == null
+                ? Optional.empty()
+                : stockCheckpointRepository.findCostLayers(checkpoint.getKey(), costingMethod.name());
+            LocalDateTime checkpointAt = snapshot.isPresent() ? checkpoint.getKey() : null;
+            CostLayerLedger ledger = snapshot.isPresent()
+                ? CostLayerLedger.restore(costingMethod, snapshot.get())
+                : new CostLayerLedger(costingMethod);
+            for (StockMovement movement : stockMovementRepository.findBetween(checkpointAt, null)) {
+                if (checkpointAt == null || movement.getOccurredAt().isAfter(checkpointAt)) {
+                    ledger.apply(movement);
+                }
+            }
+            costLayers = ledger;
+        }
+        return costLayers;
+    }
+
+    private static BigDecimal unitCostOf(BigDecimal totalCost, int quantity) {
+        return totalCost.divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP);
+    }
+
+    private static CostingMethod costingMethodFromEnvironment() {
+        String configured = System.getenv("CLINIC_INVENTORY_COSTING");
+        if (configured == null || configured.isBlank()) {
+            configured = System.getProperty("clinic.inventory.costing", CostingMethod.FIFO.name());
+        }
+        return CostingMethod.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private LocalDateTime restoreCheckpoint(Map<String, StockBalance> target, LocalDateTime time) throws IOException {
+        Map.Entry<LocalDateTime, List<StockBalance>> checkpoint = stockCheckpointRepository.findLatestAtOrBefore(time);
+        if (checkpoint == null) {
+            return null;
+        }
+        for (StockBalance balance : checkpoint.getValue()) {
+            target.put(balance.getMedicineId(), balance);
+        }
+        return checkpoint.getKey();
+    }
+
+    private void fireStockMoved(StockMovement movement, int before, int after) throws IOException {
+        for (StockMovementListener listener : listeners) {
+            listener.onStockMoved(movement, before, after);
+        }
+    }
+
+    private static int quantityOf(Map<String, StockBalance> target, String medicineId) {
+        StockBalance balance = target.get(medicineId);
+        return balance == null ? 0 : balance.getQuantity();
+    }
+
+    private static void applyToBalance(Map<String, StockBalance> target, StockMovement movement) {
+        StockBalance current = target.get(movement.getMedicineId());
+        if (current == null) {
+            current = StockBalance.empty(movement.getMedicineId());
+        }
+        target.put(movement.getMedicineId(), current.apply(movement));
     }
 }
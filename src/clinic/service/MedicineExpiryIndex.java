@@ -0,0 +1,59 @@
+package clinic.service;
+
+import clinic.model.Medicine;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Medicines ordered by expiry date, so "what expires before D" only visits the head of the map.
+ * Medicines without an expiry date are not indexed.
+ */
+final class MedicineExpiryIndex {
+    private final NavigableMap<LocalDate, Map<String, Medicine>> byExpiry = new TreeMap<>();
+    private final Map<String, Medicine> byId = new HashMap<>();
+
+    void rebuild(Collection<Medicine> medicines) {
+        byExpiry.clear();
+        byId.clear();
+        for (Medicine medicine : medicines) {
+            put(medicine);
+        }
+    }
+
+    void put(Medicine medicine) {
+        remove(medicine.getId());
+        if (medicine.getExpiryDate() == null) {
+            return;
+        }
+        byExpiry.computeIfAbsent(medicine.getExpiryDate(), key -> new LinkedHashMap<>()).put(medicine.getId(), medicine);
+        byId.put(medicine.getId(), medicine);
+    }
+
+    void remove(String medicineId) {
+        Medicine existing = byId.remove(medicineId);
+        if (existing == null) {
+            return;
+        }
+        Map<String, Medicine> sameDay = byExpiry.get(existing.getExpiryDate());
+        sameDay.remove(medicineId);
+        if (sameDay.isEmpty()) {
+            byExpiry.remove(existing.getExpiryDate());
+        }
+    }
+
+    List<Medicine> expiringOnOrBefore(LocalDate date) {
+        List<Medicine> medicines = new ArrayList<>();
+        for (Map<String, Medicine> sameDay : byExpiry.headMap(date, true).values()) {
+            medicines.addAll(sameDay.values());
+        }
+        return medicines;
+    }
+}
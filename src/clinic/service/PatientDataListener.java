@@ -0,0 +1,10 @@
+package clinic.service;
+
+import java.util.Collection;
+
+/**
+ * Notified after rows belonging to the given patients were created, updated or deleted.
+ */
+public interface PatientDataListener {
+    void onPatientDataChanged(Collection<String> patientIds);
+}
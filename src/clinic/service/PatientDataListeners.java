@@ -0,0 +1,44 @@
+package clinic.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Listener list shared by the services whose rows belong to a patient; null ids are ignored and
+ * nothing is fired when no patient was affected.
+ */
+final class PatientDataListeners {
+    private final List<PatientDataListener> listeners = new CopyOnWriteArrayList<>();
+
+    void add(PatientDataListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    void remove(PatientDataListener listener) {
+        listeners.remove(listener);
+    }
+
+    void fire(String... patientIds) {
+        fire(Arrays.asList(patientIds));
+    }
+
+    void fire(Collection<String> patientIds) {
+        Set<String> changed = new LinkedHashSet<>();
+        for (String patientId : patientIds) {
+            if (patientId != null) {
+                changed.add(patientId);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (PatientDataListener listener : listeners) {
+            listener.onPatientDataChanged(changed);
+        }
+    }
+}
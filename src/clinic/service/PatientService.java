@@ -6,10 +6,13 @@ import clinic.persistence.PatientRepository;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class PatientService {
     private final PatientRepository patientRepository;
+    private final PatientDataListeners patientDataListeners = new PatientDataListeners();
 
     public PatientService(PatientRepository patientRepository) {
         this.patientRepository = patientRepository;
@@ -31,14 +34,40 @@ public class PatientService {
             notes
         );
         patientRepository.save(patient);
+        patientDataListeners.fire(patient.getId());
         return patient;
     }
 
     public void updatePatient(Patient patient) throws IOException {
         patientRepository.save(patient);
+        patientDataListeners.fire(patient.getId());
+    }
+
+    public void savePatients(Collection<Patient> patients) throws IOException {
+        for (Patient patient : patients) {
+            if (patient.getName() == null || patient.getName().isBlank()) {
+                throw new IllegalArgumentException("患者姓名不能为空");
+            }
+        }
+        patientRepository.saveAll(patients);
+        patientDataListeners.fire(patients.stream().map(Patient::getId).collect(Collectors.toList()));
+    }
+
+    public void deletePatients(Collection<String> ids) throws IOException {
+        patientRepository.deleteAllById(ids);
+        patientDataListeners.fire(ids);
     }
 
     public void deletePatient(String id) throws IOException {
         patientRepository.deleteById(id);
+        patientDataListeners.fire(id);
+    }
+
+    public void addPatientDataListener(PatientDataListener listener) {
+        patientDataListeners.add(listener);
+    }
+
+    public void removePatientDataListener(PatientDataListener listener) {
+        patientDataListeners.remove(listener);
     }
 }
@@ -3,18 +3,34 @@ package clinic.service;
 import clinic.model.Payment;
 import clinic.model.Payment.RelatedType;
 import clinic.model.Payment.Status;
+import clinic.persistence.ColumnarArchive;
 import clinic.persistence.CsvDataStore;
 import clinic.persistence.PaymentRepository;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 public class PaymentService {
     private final PaymentRepository paymentRepository;
+    private final List<PaymentListener> listeners = new CopyOnWriteArrayList<>();
+    private RevenueBuckets revenue;
+    private Map<Status, BigDecimal> totalsByStatus;
+    private Map<Status, Integer> countsByStatus;
+
+    public interface PaymentListener {
+        void onPaymentChanged(Payment before, Payment after);
+    }
 
     public PaymentService(PaymentRepository paymentRepository) {
         this.paymentRepository = paymentRepository;
@@ -32,7 +48,7 @@ public class PaymentService {
         return paymentRepository.findById(id);
     }
 
-    public Payment createPayment(String patientId,
+    public synchronized Payment createPayment(String patientId,
                                  RelatedType relatedType,
                                  String relatedId,
                                  BigDecimal amount,
@@ -55,26 +71,29 @@ public class PaymentService {
             null
         );
         paymentRepository.save(payment);
+        onStatusChanged(null, payment);
         return payment;
     }
 
-    public Payment markPaid(String paymentId) throws IOException {
+    public synchronized Payment markPaid(String paymentId) throws IOException {
         Payment payment = paymentRepository.findById(paymentId)
             .orElseThrow(() -> new IllegalArgumentException("未找到支付记录"));
         Payment updated = payment.withStatus(Status.PAID, LocalDateTime.now());
         paymentRepository.save(updated);
+        onStatusChanged(payment, updated);
         return updated;
     }
 
-    public Payment markFailed(String paymentId) throws IOException {
+    public synchronized Payment markFailed(String paymentId) throws IOException {
         Payment payment = paymentRepository.findById(paymentId)
             .orElseThrow(() -> new IllegalArgumentException("未找到支付记录"));
         Payment updated = payment.withStatus(Status.FAILED, payment.getPaidAt());
         paymentRepository.save(updated);
+        onStatusChanged(payment, updated);
         return updated;
     }
 
-    public Payment refund(String paymentId) throws IOException {
+    public synchronized Payment refund(String paymentId) throws IOException {
         Payment payment = paymentRepository.findById(paymentId)
             .orElseThrow(() -> new IllegalArgumentException("未找到支付记录"));
         if (payment.getStatus() != Status.PAID) {
@@ -82,6 +101,7 @@ public class PaymentService {
         }
         Payment updated = payment.withStatus(Status.REFUNDED, LocalDateTime.now());
         paymentRepository.save(updated);
+        onStatusChanged(payment, updated);
         return updated;
     }
 
@@ -92,12 +112,67 @@ public class PaymentService {
             .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
-    public BigDecimal calculateRevenue(LocalDateTime from, LocalDateTime to) throws IOException {
-        return paymentRepository.findAll().stream()
-            .filter(p -> p.getStatus() == Status.PAID)
-            .filter(p -> !p.getPaidAt().isBefore(from) && !p.getPaidAt().isAfter(to))
-            .map(Payment::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public synchronized BigDecimal getTotalByStatus(Status status) throws IOException {
+        loadSummaries();
+        return totalsByStatus.getOrDefault(status, BigDecimal.ZERO);
+    }
+
+    public synchronized int getCountByStatus(Status status) throws IOException {
+        loadSummaries();
+        return countsByStatus.getOrDefault(status, 0);
+    }
+
+    public void addPaymentListener(PaymentListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removePaymentListener(PaymentListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized BigDecimal calculateRevenue(LocalDateTime from, LocalDateTime to) throws IOException {
+        return revenue().total(from, to);
+    }
+
+    public synchronized NavigableMap<LocalDate, BigDecimal> listDailyRevenue(LocalDate from, LocalDate to) throws IOException {
+        return revenue().daily(from, to);
+    }
+
+    public synchronized Map<String, BigDecimal> calculateRevenueByMethod(LocalDate from, LocalDate to) throws IOException {
+        return revenue().totalByMethod(from, to);
+    }
+
+    public synchronized void reloadSummaries() {
+        revenue = null;
+        totalsByStatus = null;
+        countsByStatus = null;
+    }
+
+    public Path exportColumnarArchive(LocalDateTime closedBefore) throws IOException {
+        return paymentRepository.writeColumnarArchive(closedBefore);
+    }
+
+    public BigDecimal calculateArchivedRevenue(LocalDateTime from, LocalDateTime to) throws IOException {
+        Optional<ColumnarArchive> archive = paymentRepository.openColumnarArchive();
+        if (archive.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        LocalDateTime closedBefore = archive.get().getClosedBefore();
+        Map<String, ColumnarArchive.Column> columns = archive.get().scan("status", "paidAt", "amount");
+        ColumnarArchive.Column status = columns.get("status");
+        ColumnarArchive.Column paidAt = columns.get("paidAt");
+        ColumnarArchive.Column amount = columns.get("amount");
+        long total = 0;
+        for (int i = 0; i < status.size(); i++) {
+            if (!Status.PAID.name().equals(status.getString(i)) || paidAt.isNull(i) || amount.isNull(i)) {
+                continue;
+            }
+            LocalDateTime time = paidAt.getTimestamp(i);
+            if (time.isBefore(closedBefore) && (from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to))) {
+                total += amount.getUnscaled(i);
+            }
+        }
+        return BigDecimal.valueOf(total, amount.getScale());
     }
 
     public List<Payment> listOutstanding() throws IOException {
@@ -106,9 +181,80 @@ public class PaymentService {
             .collect(Collectors.toList());
     }
 
-    public void attachInsuranceClaim(String paymentId, String claimId) throws IOException {
+    public synchronized List<Payment> linkApprovedClaims(Map<String, String> claimIdByPaymentId) throws IOException {
+        List<Payment> before = new ArrayList<>();
+        List<Payment> updated = new ArrayList<>();
+        for (Payment payment : paymentRepository.findAll()) {
+            String claimId = claimIdByPaymentId.get(payment.getId());
+            if (claimId == null) {
+                continue;
+            }
+            Payment linked = payment.withInsuranceClaim(claimId);
+            if (linked.getStatus() == Status.PENDING) {
+                linked = linked.withStatus(Status.PROCESSING, linked.getPaidAt());
+            }
+            before.add(payment);
+            updated.add(linked);
+        }
+        paymentRepository.saveAll(updated);
+        for (int i = 0; i < updated.size(); i++) {
+            onStatusChanged(before.get(i), updated.get(i));
+        }
+        return updated;
+    }
+
+    public synchronized void attachInsuranceClaim(String paymentId, String claimId) throws IOException {
         Payment payment = paymentRepository.findById(paymentId)
             .orElseThrow(() -> new IllegalArgumentException("未找到支付记录"));
-        paymentRepository.save(payment.withInsuranceClaim(claimId));
+        Payment updated = payment.withInsuranceClaim(claimId);
+        paymentRepository.save(updated);
+        onStatusChanged(payment, updated);
+    }
+
+    private RevenueBuckets revenue() throws IOException {
+        loadSummaries();
+        return revenue;
+    }
+
+    private void loadSummaries() throws IOException {
+        if (revenue != null) {
+            return;
+        }
+        RevenueBuckets buckets = new RevenueBuckets();
+        Map<Status, BigDecimal> totals = new EnumMap<>(Status.class);
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        for (Payment payment : paymentRepository.findAll()) {
+            count(totals, counts, payment, 1);
+            if (payment.getStatus() == Status.PAID) {
+                buckets.add(payment);
+            }
+        }
+        totalsByStatus = totals;
+        countsByStatus = counts;
+        revenue = buckets;
+    }
+
+    private void onStatusChanged(Payment before, Payment after) {
+        if (revenue != null) {
+            if (before != null) {
+                count(totalsByStatus, countsByStatus, before, -1);
+                if (before.getStatus() == Status.PAID) {
+                    revenue.remove(before);
+                }
+            }
+            count(totalsByStatus, countsByStatus, after, 1);
+            if (after.getStatus() == Status.PAID) {
+                revenue.add(after);
+            }
+        }
+        for (PaymentListener listener : listeners) {
+            listener.onPaymentChanged(before, after);
+        }
+    }
+
+    private static void count(Map<Status, BigDecimal> totals, Map<Status, Integer> counts, Payment payment, int sign) {
+        BigDecimal amount = sign < 0 ? payment.getAmount().negate() : payment.getAmount();
+        totals.merge(payment.getStatus(), amount, BigDecimal::add);
+        counts.merge(payment.getStatus(), sign, Integer::sum);
     }
 }
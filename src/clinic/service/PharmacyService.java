@@ -2,29 +2,107 @@ package clinic.service;
 
 import clinic.model.Medicine;
 import clinic.model.Prescription;
+import clinic.model.StockMovement;
+import clinic.model.StockMovement.MovementType;
 import clinic.persistence.CsvDataStore;
 import clinic.persistence.MedicineRepository;
 import clinic.persistence.PrescriptionRepository;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 public class PharmacyService {
+    private static final Logger LOGGER = Logger.getLogger(PharmacyService.class.getName());
+    private static final int DEFAULT_EXPIRY_ALERT_DAYS = 30;
+    private static final long DEFAULT_EXPIRY_CHECK_MINUTES = 60;
+    private static final int MEDICINE_LOCK_STRIPES = 64;
+    private static final int DEFAULT_LOW_STOCK_THRESHOLD = 10;
+    private static final String DISPENSE_REFERENCE_TYPE = "PRESCRIPTION";
+
+    public interface ExpiryAlertListener {
+        void onNearExpiry(List<Medicine> medicines, int daysAhead);
+    }
+
+    public interface LowStockListener {
+        void onLowStock(Medicine medicine, int available, int threshold);
+
+        default void onRestocked(Medicine medicine, int available, int threshold) {
+        }
+    }
+
+    public static final class DispenseResult {
+        private final List<Prescription> dispensed;
+        private final Map<String, String> failures;
+
+        private DispenseResult(List<Prescription> dispensed, Map<String, String> failures) {
+            this.dispensed = dispensed;
+            this.failures = failures;
+        }
+
+        public List<Prescription> getDispensed() {
+            return dispensed;
+        }
+
+        public Map<String, String> getFailures() {
+            return failures;
+        }
+    }
+
     private final MedicineRepository medicineRepository;
     private final PrescriptionRepository prescriptionRepository;
+    private final InventoryService inventoryService;
+    private final StripedLocks medicineLocks = new StripedLocks(MEDICINE_LOCK_STRIPES);
+    private final Object medicineFileLock = new Object();
+    private final Object prescriptionFileLock = new Object();
+    private final MedicineExpiryIndex expiryIndex = new MedicineExpiryIndex();
+    private final Map<String, LocalDate> alertedExpiry = new HashMap<>();
+    private final List<ExpiryAlertListener> expiryListeners = new CopyOnWriteArrayList<>();
+    private final StockReservations reservations = new StockReservations();
+    private final Map<String, Integer> lowStockThresholds = new ConcurrentHashMap<>();
+    private final List<LowStockListener> lowStockListeners = new CopyOnWriteArrayList<>();
+    private final Set<String> dispensingMovements = ConcurrentHashMap.newKeySet();
+    private final int defaultLowStockThreshold = lowStockThresholdFromEnvironment();
+    private volatile boolean reservationsLoaded;
+    private boolean expiryIndexLoaded;
+    private ScheduledExecutorService expiryMonitor;
 
-    public PharmacyService(MedicineRepository medicineRepository, PrescriptionRepository prescriptionRepository) {
+    public PharmacyService(MedicineRepository medicineRepository,
+                           PrescriptionRepository prescriptionRepository,
+                           InventoryService inventoryService) {
         this.medicineRepository = medicineRepository;
         this.prescriptionRepository = prescriptionRepository;
+        this.inventoryService = inventoryService;
+        inventoryService.addStockMovementListener(this::onStockMoved);
     }
 
     public List<Medicine> listMedicines() throws IOException {
-        return medicineRepository.findAll();
+        synchronized (medicineFileLock) {
+            return medicineRepository.findAll();
+        }
     }
 
     public List<Prescription> listPrescriptions() throws IOException {
-        return prescriptionRepository.findAll();
+        synchronized (prescriptionFileLock) {
+            return prescriptionRepository.findAll();
+        }
     }
 
     public Medicine addMedicine(String name, String specification, int stock, String unit, java.time.LocalDate expiryDate) throws IOException {
@@ -36,16 +114,126 @@ public class PharmacyService {
             unit,
             expiryDate
         );
-        medicineRepository.save(medicine);
+        synchronized (medicineFileLock) {
+            medicineRepository.save(medicine);
+        }
+        reindex(List.of(medicine));
         return medicine;
     }
 
+    public List<Medicine> addMedicines(Collection<Medicine> medicines) throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (Medicine medicine : medicines) {
+            if (medicine.getName() == null || medicine.getName().isBlank()) {
+                throw new IllegalArgumentException("药品名称不能为空");
+            }
+            if (!ids.add(medicine.getId())) {
+                throw new IllegalArgumentException("批量导入中存在重复药品编号: " + medicine.getId());
+            }
+        }
+        synchronized (medicineFileLock) {
+            medicineRepository.saveAll(medicines);
+        }
+        reindex(medicines);
+        return new ArrayList<>(medicines);
+    }
+
     public void updateMedicine(Medicine medicine) throws IOException {
-        medicineRepository.save(medicine);
+        List<ReentrantLock> locks = medicineLocks.lockAll(List.of(medicine.getId()));
+        try {
+            Medicine previous = findMedicine(medicine.getId());
+            synchronized (medicineFileLock) {
+                medicineRepository.save(medicine);
+            }
+            if (previous != null) {
+                checkThreshold(medicine, availableOf(previous), availableOf(medicine));
+            }
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
+        reindex(List.of(medicine));
     }
 
     public void removeMedicine(String id) throws IOException {
-        medicineRepository.deleteById(id);
+        removeMedicines(List.of(id));
+    }
+
+    public void removeMedicines(Collection<String> ids) throws IOException {
+        List<ReentrantLock> locks = medicineLocks.lockAll(ids);
+        try {
+            synchronized (medicineFileLock) {
+                medicineRepository.deleteAllById(ids);
+            }
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
+        unindex(ids);
+    }
+
+    public synchronized List<Medicine> listNearExpiry(int daysAhead) throws IOException {
+        return expiryIndex().expiringOnOrBefore(LocalDate.now().plusDays(daysAhead));
+    }
+
+    public int getExpiryAlertDays() {
+        String fromEnv = System.getenv("CLINIC_EXPIRY_ALERT_DAYS");
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            return Integer.parseInt(fromEnv.trim());
+        }
+        return Integer.getInteger("clinic.expiry.alert.days", DEFAULT_EXPIRY_ALERT_DAYS);
+    }
+
+    public void addExpiryAlertListener(ExpiryAlertListener listener) {
+        expiryListeners.add(listener);
+    }
+
+    public void removeExpiryAlertListener(ExpiryAlertListener listener) {
+        expiryListeners.remove(listener);
+    }
+
+    public void startExpiryMonitor() {
+        startExpiryMonitor(getExpiryAlertDays(), DEFAULT_EXPIRY_CHECK_MINUTES);
+    }
+
+    public synchronized void startExpiryMonitor(int daysAhead, long intervalMinutes) {
+        if (expiryMonitor != null) {
+            return;
+        }
+        expiryMonitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "clinic-expiry-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expiryMonitor.scheduleAtFixedRate(() -> {
+            try {
+                checkExpiry(daysAhead);
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "药品效期检查失败", ex);
+            }
+        }, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stopExpiryMonitor() {
+        if (expiryMonitor != null) {
+            expiryMonitor.shutdownNow();
+            expiryMonitor = null;
+        }
+    }
+
+    public List<Medicine> checkExpiry(int daysAhead) throws IOException {
+        List<Medicine> newlyNear = new ArrayList<>();
+        synchronized (this) {
+            for (Medicine medicine : listNearExpiry(daysAhead)) {
+                if (!medicine.getExpiryDate().equals(alertedExpiry.put(medicine.getId(), medicine.getExpiryDate()))) {
+                    newlyNear.add(medicine);
+                }
+            }
+        }
+        if (!newlyNear.isEmpty()) {
+            for (ExpiryAlertListener listener : expiryListeners) {
+                listener.onNearExpiry(newlyNear, daysAhead);
+            }
+        }
+        return newlyNear;
     }
 
     public Prescription createPrescription(String consultationId, String medicineId, int quantity, String usage) throws IOException {
@@ -57,32 +245,326 @@ public class PharmacyService {
             usage,
             "PENDING"
         );
-        prescriptionRepository.save(prescription);
+        List<ReentrantLock> locks = medicineLocks.lockAll(List.of(medicineId));
+        try {
+            Medicine medicine = findMedicine(medicineId);
+            if (medicine == null) {
+                throw new IllegalArgumentException("未找到药品");
+            }
+            int available = availableOf(medicine);
+            if (available < prescription.getQuantity()) {
+                throw new IllegalStateException("库存不足，无法预留: " + medicine.getName() + " 可用 " + available);
+            }
+            synchronized (prescriptionFileLock) {
+                prescriptionRepository.save(prescription);
+            }
+            reservations.reserve(medicineId, prescription.getQuantity());
+            checkThreshold(medicine, available, available - prescription.getQuantity());
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
         return prescription;
     }
 
     public void updatePrescriptionStatus(String prescriptionId, String status) throws IOException {
-        List<Prescription> prescriptions = prescriptionRepository.findAll();
-        for (Prescription prescription : prescriptions) {
-            if (prescription.getId().equals(prescriptionId)) {
-                Prescription updated = new Prescription(
-                    prescription.getId(),
-                    prescription.getConsultationId(),
-                    prescription.getMedicineId(),
-                    prescription.getQuantity(),
-                    prescription.getUsage(),
-                    status
-                );
-                prescriptionRepository.save(updated);
+        Prescription prescription = findPrescription(prescriptionId);
+        if ("DONE".equalsIgnoreCase(status)) {
+            if ("DONE".equalsIgnoreCase(prescription.getStatus())) {
                 return;
             }
+            DispenseResult result = dispense(List.of(prescriptionId), null);
+            if (!result.getFailures().isEmpty()) {
+                throw new IllegalStateException(result.getFailures().get(prescriptionId));
+            }
+            return;
+        }
+        List<ReentrantLock> locks = medicineLocks.lockAll(List.of(prescription.getMedicineId()));
+        try {
+            prescription = findPrescription(prescriptionId);
+            boolean held = StockReservations.holdsStock(prescription.getStatus());
+            boolean holds = StockReservations.holdsStock(status);
+            Medicine medicine = held == holds ? null : findMedicine(prescription.getMedicineId());
+            int before = medicine == null ? 0 : availableOf(medicine);
+            if (medicine != null && holds && before < prescription.getQuantity()) {
+                throw new IllegalStateException("库存不足，无法预留: " + medicine.getName() + " 可用 " + before);
+            }
+            synchronized (prescriptionFileLock) {
+                prescriptionRepository.save(prescription.withStatus(status));
+            }
+            if (medicine != null) {
+                if (holds) {
+                    reservations.reserve(medicine.getId(), prescription.getQuantity());
+                    checkThreshold(medicine, before, before - prescription.getQuantity());
+                } else {
+                    reservations.release(medicine.getId(), prescription.getQuantity());
+                    checkThreshold(medicine, before, before + prescription.getQuantity());
+                }
+            }
+        } finally {
+            StripedLocks.unlockAll(locks);
         }
-        throw new IllegalArgumentException("未找到处方");
+    }
+
+    public int getReservedQuantity(String medicineId) throws IOException {
+        return reservations().reserved(medicineId);
+    }
+
+    public int getAvailableStock(Medicine medicine) throws IOException {
+        return availableOf(medicine);
+    }
+
+    public boolean isLowStock(Medicine medicine) throws IOException {
+        return availableOf(medicine) < getLowStockThreshold(medicine.getId());
+    }
+
+    public int getLowStockThreshold(String medicineId) {
+        return lowStockThresholds.getOrDefault(medicineId, defaultLowStockThreshold);
+    }
+
+    public void setLowStockThreshold(String medicineId, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("库存预警阈值不能为负数");
+        }
+        lowStockThresholds.put(medicineId, threshold);
+    }
+
+    public void addLowStockListener(LowStockListener listener) {
+        lowStockListeners.add(listener);
+    }
+
+    public void removeLowStockListener(LowStockListener listener) {
+        lowStockListeners.remove(listener);
     }
 
     public List<Prescription> listPendingPrescriptions() throws IOException {
-        return prescriptionRepository.findAll().stream()
+        return listPrescriptions().stream()
             .filter(p -> "PENDING".equalsIgnoreCase(p.getStatus()))
             .collect(Collectors.toList());
     }
+
+    public DispenseResult dispensePending(String operatorId) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (Prescription prescription : listPendingPrescriptions()) {
+            ids.add(prescription.getId());
+        }
+        return dispense(ids, operatorId);
+    }
+
+    public DispenseResult dispense(Collection<String> prescriptionIds, String operatorId) throws IOException {
+        Set<String> requested = new LinkedHashSet<>(prescriptionIds);
+        Set<String> medicineIds = new HashSet<>();
+        for (Prescription prescription : listPrescriptions()) {
+            if (requested.contains(prescription.getId())) {
+                medicineIds.add(prescription.getMedicineId());
+            }
+        }
+        List<ReentrantLock> locks = medicineLocks.lockAll(medicineIds);
+        try {
+            Map<String, Prescription> prescriptions = new HashMap<>();
+            for (Prescription prescription : listPrescriptions()) {
+                prescriptions.put(prescription.getId(), prescription);
+            }
+            Map<String, Medicine> medicines = new HashMap<>();
+            for (Medicine medicine : listMedicines()) {
+                medicines.put(medicine.getId(), medicine);
+            }
+            Map<String, Integer> remainingStock = new LinkedHashMap<>();
+            Map<String, String> failures = new LinkedHashMap<>();
+            List<Prescription> dispensed = new ArrayList<>();
+            List<StockMovement> outbounds = new ArrayList<>();
+            StockReservations held = reservations();
+            for (String id : requested) {
+                Prescription prescription = prescriptions.get(id);
+                if (prescription == null) {
+                    failures.put(id, "未找到处方");
+                    continue;
+                }
+                if ("DONE".equalsIgnoreCase(prescription.getStatus())) {
+                    failures.put(id, "处方已发药");
+                    continue;
+                }
+                if ("CANCELLED".equalsIgnoreCase(prescription.getStatus())) {
+                    failures.put(id, "处方已取消");
+                    continue;
+                }
+                Medicine medicine = medicines.get(prescription.getMedicineId());
+                if (medicine == null || !medicineIds.contains(medicine.getId())) {
+                    failures.put(id, "未找到处方对应的药品");
+                    continue;
+                }
+                int available = remainingStock.getOrDefault(medicine.getId(), medicine.getStock());
+                if (available < prescription.getQuantity()) {
+                    failures.put(id, "库存不足: " + medicine.getName() + " 剩余 " + available);
+                    continue;
+                }
+                remainingStock.put(medicine.getId(), available - prescription.getQuantity());
+                dispensed.add(prescription.withStatus("DONE"));
+                outbounds.add(new StockMovement(
+                    CsvDataStore.randomId(),
+                    medicine.getId(),
+                    MovementType.OUTBOUND,
+                    prescription.getQuantity(),
+                    null,
+                    null,
+                    null,
+                    DISPENSE_REFERENCE_TYPE,
+                    prescription.getId(),
+                    operatorId,
+                    "处方发药"
+                ));
+            }
+            if (!dispensed.isEmpty()) {
+                List<Medicine> updated = new ArrayList<>(remainingStock.size());
+                for (Map.Entry<String, Integer> entry : remainingStock.entrySet()) {
+                    updated.add(medicines.get(entry.getKey()).withStock(entry.getValue()));
+                }
+                Map<String, Integer> availableBefore = new HashMap<>();
+                for (Medicine medicine : updated) {
+                    availableBefore.put(medicine.getId(), availableOf(medicines.get(medicine.getId())));
+                }
+                List<Medicine> originalMedicines = new ArrayList<>(updated.size());
+                for (Medicine medicine : updated) {
+                    originalMedicines.add(medicines.get(medicine.getId()));
+                }
+                List<Prescription> originalPrescriptions = new ArrayList<>(dispensed.size());
+                for (Prescription prescription : dispensed) {
+                    originalPrescriptions.add(prescriptions.get(prescription.getId()));
+                }
+                synchronized (medicineFileLock) {
+                    medicineRepository.saveAll(updated);
+                }
+                boolean prescriptionsSaved = false;
+                try {
+                    synchronized (prescriptionFileLock) {
+                        prescriptionRepository.saveAll(dispensed);
+                    }
+                    prescriptionsSaved = true;
+                    for (StockMovement outbound : outbounds) {
+                        dispensingMovements.add(outbound.getId());
+                    }
+                    inventoryService.recordOutbounds(outbounds);
+                } catch (IOException | RuntimeException ex) {
+                    if (prescriptionsSaved) {
+                        synchronized (prescriptionFileLock) {
+                            prescriptionRepository.saveAll(originalPrescriptions);
+                        }
+                    }
+                    synchronized (medicineFileLock) {
+                        medicineRepository.saveAll(originalMedicines);
+                    }
+                    throw ex;
+                } finally {
+                    for (StockMovement outbound : outbounds) {
+                        dispensingMovements.remove(outbound.getId());
+                    }
+                }
+                reindex(updated);
+                for (Prescription prescription : dispensed) {
+                    Prescription original = prescriptions.get(prescription.getId());
+                    if (StockReservations.holdsStock(original.getStatus())) {
+                        held.release(prescription.getMedicineId(), prescription.getQuantity());
+                    }
+                }
+                for (Medicine medicine : updated) {
+                    checkThreshold(medicine, availableBefore.get(medicine.getId()), availableOf(medicine));
+                }
+            }
+            return new DispenseResult(dispensed, failures);
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
+    }
+
+    private synchronized MedicineExpiryIndex expiryIndex() throws IOException {
+        if (!expiryIndexLoaded) {
+            synchronized (medicineFileLock) {
+                expiryIndex.rebuild(medicineRepository.findAll());
+            }
+            expiryIndexLoaded = true;
+        }
+        return expiryIndex;
+    }
+
+    private synchronized void reindex(Collection<Medicine> medicines) {
+        if (!expiryIndexLoaded) {
+            return;
+        }
+        for (Medicine medicine : medicines) {
+            expiryIndex.put(medicine);
+        }
+    }
+
+    private synchronized void unindex(Collection<String> ids) {
+        for (String id : ids) {
+            alertedExpiry.remove(id);
+            if (expiryIndexLoaded) {
+                expiryIndex.remove(id);
+            }
+        }
+    }
+
+    private StockReservations reservations() throws IOException {
+        if (!reservationsLoaded) {
+            synchronized (reservations) {
+                if (!reservationsLoaded) {
+                    reservations.load(listPrescriptions());
+                    reservationsLoaded = true;
+                }
+            }
+        }
+        return reservations;
+    }
+
+    private int availableOf(Medicine medicine) throws IOException {
+        return medicine.getStock() - reservations().reserved(medicine.getId());
+    }
+
+    private void onStockMoved(StockMovement movement, int before, int after) throws IOException {
+        if (dispensingMovements.contains(movement.getId()) || lowStockListeners.isEmpty()) {
+            return;
+        }
+        Medicine medicine = findMedicine(movement.getMedicineId());
+        if (medicine == null) {
+            return;
+        }
+        int reserved = reservations().reserved(medicine.getId());
+        checkThreshold(medicine, before - reserved, after - reserved);
+    }
+
+    private void checkThreshold(Medicine medicine, int before, int after) {
+        int threshold = getLowStockThreshold(medicine.getId());
+        if (before >= threshold && after < threshold) {
+            for (LowStockListener listener : lowStockListeners) {
+                listener.onLowStock(medicine, after, threshold);
+            }
+        } else if (before < threshold && after >= threshold) {
+            for (LowStockListener listener : lowStockListeners) {
+                listener.onRestocked(medicine, after, threshold);
+            }
+        }
+    }
+
+    private Medicine findMedicine(String medicineId) throws IOException {
+        for (Medicine medicine : listMedicines()) {
+            if (medicine.getId().equals(medicineId)) {
+                return medicine;
+            }
+        }
+        return null;
+    }
+
+    private Prescription findPrescription(String prescriptionId) throws IOException {
+        return listPrescriptions().stream()
+            .filter(p -> p.getId().equals(prescriptionId))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("未找到处方"));
+    }
+
+    private static int lowStockThresholdFromEnvironment() {
+        String fromEnv = System.getenv("CLINIC_LOW_STOCK_THRESHOLD");
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            return Integer.parseInt(fromEnv.trim());
+        }
+        return Integer.getInteger("clinic.low.stock.threshold", DEFAULT_LOW_STOCK_THRESHOLD);
+    }
 }
@@ -0,0 +1,130 @@
+package clinic.service;
+
+import clinic.model.Payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Paid revenue bucketed by day and by payment method.
+ * Whole days of a range are answered from prefix sums over the daily buckets (rebuilt lazily after
+ * a change); only the two boundary days are summed from the per-timestamp entries.
+ * PAID rows without paidAt are counted at their creation time; rows with neither timestamp belong to
+ * no day and are left out of the buckets (the status totals in PaymentService still include them).
+ */
+final class RevenueBuckets {
+    private final NavigableMap<LocalDateTime, BigDecimal> byTime = new TreeMap<>();
+    private final NavigableMap<LocalDate, BigDecimal> byDay = new TreeMap<>();
+    private final Map<String, NavigableMap<LocalDate, BigDecimal>> byMethod = new HashMap<>();
+    private LocalDate[] prefixDays;
+    private BigDecimal[] prefixTotals;
+
+    static LocalDateTime revenueTime(Payment payment) {
+        return payment.getPaidAt() != null ? payment.getPaidAt() : payment.getCreatedAt();
+    }
+
+    void add(Payment payment) {
+        adjust(payment, payment.getAmount());
+    }
+
+    void remove(Payment payment) {
+        adjust(payment, payment.getAmount().negate());
+    }
+
+    BigDecimal total(LocalDateTime from, LocalDateTime to) {
+        if (byTime.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        LocalDateTime start = from == null ? byTime.firstKey() : from;
+        LocalDateTime end = to == null ? byTime.lastKey() : to;
+        if (start.isAfter(end)) {
+            return BigDecimal.ZERO;
+        }
+        LocalDate firstDay = start.toLocalDate();
+        LocalDate lastDay = end.toLocalDate();
+        if (firstDay.equals(lastDay)) {
+            return sum(byTime.subMap(start, true, end, true));
+        }
+        LocalDate firstWholeDay = firstDay.plusDays(1);
+        return sum(byTime.subMap(start, true, firstWholeDay.atStartOfDay(), false))
+            .add(prefixBefore(lastDay).subtract(prefixBefore(firstWholeDay)))
+            .add(sum(byTime.subMap(lastDay.atStartOfDay(), true, end, true)));
+    }
+
+    NavigableMap<LocalDate, BigDecimal> daily(LocalDate from, LocalDate to) {
+        return new TreeMap<>(range(byDay, from, to));
+    }
+
+    Map<String, BigDecimal> totalByMethod(LocalDate from, LocalDate to) {
+        Map<String, BigDecimal> totals = new HashMap<>();
+        for (Map.Entry<String, NavigableMap<LocalDate, BigDecimal>> entry : byMethod.entrySet()) {
+            BigDecimal total = sum(range(entry.getValue(), from, to));
+            if (total.signum() != 0) {
+                totals.put(entry.getKey(), total);
+            }
+        }
+        return totals;
+    }
+
+    private void adjust(Payment payment, BigDecimal amount) {
+        LocalDateTime time = revenueTime(payment);
+        if (time == null) {
+            return;
+        }
+        LocalDate day = time.toLocalDate();
+        merge(byTime, time, amount);
+        merge(byDay, day, amount);
+        merge(byMethod.computeIfAbsent(payment.getMethod(), key -> new TreeMap<>()), day, amount);
+        prefixDays = null;
+        prefixTotals = null;
+    }
+
+    private BigDecimal prefixBefore(LocalDate day) {
+        if (prefixDays == null) {
+            prefixDays = byDay.keySet().toArray(new LocalDate[0]);
+            prefixTotals = new BigDecimal[prefixDays.length + 1];
+            prefixTotals[0] = BigDecimal.ZERO;
+            int i = 0;
+            for (BigDecimal amount : byDay.values()) {
+                prefixTotals[i + 1] = prefixTotals[i].add(amount);
+                i++;
+            }
+        }
+        int index = Arrays.binarySearch(prefixDays, day);
+        return prefixTotals[index >= 0 ? index : -index - 1];
+    }
+
+    private static <K> void merge(Map<K, BigDecimal> buckets, K key, BigDecimal amount) {
+        BigDecimal updated = buckets.getOrDefault(key, BigDecimal.ZERO).add(amount);
+        if (updated.signum() == 0) {
+            buckets.remove(key);
+        } else {
+            buckets.put(key, updated);
+        }
+    }
+
+    private static NavigableMap<LocalDate, BigDecimal> range(NavigableMap<LocalDate, BigDecimal> buckets, LocalDate from, LocalDate to) {
+        if (from != null && to != null) {
+            return from.isAfter(to) ? new TreeMap<>() : buckets.subMap(from, true, to, true);
+        } else if (from != null) {
+            return buckets.tailMap(from, true);
+        } else if (to != null) {
+            return buckets.headMap(to, true);
+        }
+        return buckets;
+    }
+
+    private static BigDecimal sum(Map<?, BigDecimal> buckets) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : buckets.values()) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+}
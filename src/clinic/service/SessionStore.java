@@ -0,0 +1,193 @@
+package clinic.service;
+
+import clinic.model.Role;
+import clinic.model.User;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory authenticated sessions keyed by token and by (user id, role), expiring after an idle TTL.
+ * Expiry runs on a hashed timing wheel of one-second ticks that is advanced lazily by every call:
+ * each tick only visits the sessions filed in its slot, and sessions that were touched since being
+ * filed are moved to the slot of their new deadline instead of expiring.
+ */
+public class SessionStore {
+    private static final int DEFAULT_TTL_MINUTES = 30;
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 512;
+    private static final int TOKEN_BYTES = 16;
+
+    public static final class Session {
+        private final String token;
+        private final String userId;
+        private final Role role;
+        private volatile long expiresAt;
+
+        private Session(String token, String userId, Role role, long expiresAt) {
+            this.token = token;
+            this.userId = userId;
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public Role getRole() {
+            return role;
+        }
+
+        public Instant getExpiresAt() {
+            return Instant.ofEpochMilli(expiresAt);
+        }
+    }
+
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> byToken = new HashMap<>();
+    private final Map<String, Session> byUserRole = new HashMap<>();
+    private final List<ArrayDeque<Session>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private long currentTick;
+
+    public SessionStore() {
+        this(Duration.ofMinutes(resolveTtlMinutes()));
+    }
+
+    public SessionStore(Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("会话有效期必须大于0");
+        }
+        this.ttlMillis = ttl.toMillis();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.currentTick = System.currentTimeMillis() / TICK_MILLIS;
+    }
+
+    public synchronized Session open(User user) {
+        long now = advance();
+        String key = key(user.getId(), user.getRole());
+        Session session = byUserRole.get(key);
+        if (session != null) {
+            session.expiresAt = now + ttlMillis;
+            return session;
+        }
+        session = new Session(newToken(), user.getId(), user.getRole(), now + ttlMillis);
+        byToken.put(session.token, session);
+        byUserRole.put(key, session);
+        schedule(session);
+        return session;
+    }
+
+    public synchronized Optional<Session> find(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        return touch(byToken.get(token), advance());
+    }
+
+    public synchronized Optional<Session> findActive(String userId, Role role) {
+        return touch(byUserRole.get(key(userId, role)), advance());
+    }
+
+    public synchronized void revoke(String token) {
+        Session session = token == null ? null : byToken.get(token);
+        if (session != null) {
+            remove(session);
+        }
+    }
+
+    public synchronized void revokeUser(String userId) {
+        for (Session session : new ArrayList<>(byToken.values())) {
+            if (session.userId.equals(userId)) {
+                remove(session);
+            }
+        }
+    }
+
+    public synchronized int activeCount() {
+        advance();
+        return byToken.size();
+    }
+
+    private Optional<Session> touch(Session session, long now) {
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (session.expiresAt <= now) {
+            remove(session);
+            return Optional.empty();
+        }
+        session.expiresAt = now + ttlMillis;
+        return Optional.of(session);
+    }
+
+    private long advance() {
+        long now = System.currentTimeMillis();
+        long targetTick = now / TICK_MILLIS;
+        long ticks = Math.min(targetTick - currentTick, WHEEL_SIZE);
+        for (long i = 1; i <= ticks; i++) {
+            ArrayDeque<Session> slot = wheel.get(slotOf(currentTick + i));
+            int pending = slot.size();
+            for (int j = 0; j < pending; j++) {
+                Session session = slot.poll();
+                if (byToken.get(session.token) != session) {
+                    continue;
+                }
+                if (session.expiresAt <= now) {
+                    remove(session);
+                } else {
+                    schedule(session);
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        return now;
+    }
+
+    private void schedule(Session session) {
+        long deadlineTick = Math.max(session.expiresAt / TICK_MILLIS, currentTick + 1);
+        wheel.get(slotOf(deadlineTick)).add(session);
+    }
+
+    private void remove(Session session) {
+        byToken.remove(session.token);
+        byUserRole.remove(key(session.userId, session.role), session);
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) WHEEL_SIZE);
+    }
+
+    private static String key(String userId, Role role) {
+        return userId + "|" + role;
+    }
+
+    private static int resolveTtlMinutes() {
+        String fromEnv = System.getenv("CLINIC_SESSION_TTL_MINUTES");
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            return Integer.parseInt(fromEnv.trim());
+        }
+        return Integer.getInteger("clinic.session.ttl.minutes", DEFAULT_TTL_MINUTES);
+    }
+}
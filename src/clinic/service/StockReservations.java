@@ -0,0 +1,39 @@
+package clinic.service;
+
+import clinic.model.Prescription;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Quantity of each medicine held by prescriptions that are neither dispensed nor cancelled.
+ * Rebuilt from prescriptions.csv on first use, then adjusted as prescriptions change state.
+ */
+final class StockReservations {
+    private final ConcurrentHashMap<String, Integer> reservedByMedicine = new ConcurrentHashMap<>();
+
+    static boolean holdsStock(String status) {
+        return !"DONE".equalsIgnoreCase(status) && !"CANCELLED".equalsIgnoreCase(status);
+    }
+
+    void load(Collection<Prescription> prescriptions) {
+        reservedByMedicine.clear();
+        for (Prescription prescription : prescriptions) {
+            if (holdsStock(prescription.getStatus())) {
+                reserve(prescription.getMedicineId(), prescription.getQuantity());
+            }
+        }
+    }
+
+    int reserved(String medicineId) {
+        return reservedByMedicine.getOrDefault(medicineId, 0);
+    }
+
+    void reserve(String medicineId, int quantity) {
+        reservedByMedicine.merge(medicineId, quantity, Integer::sum);
+    }
+
+    void release(String medicineId, int quantity) {
+        reservedByMedicine.computeIfPresent(medicineId, (key, current) -> current > quantity ? current - quantity : null);
+    }
+}
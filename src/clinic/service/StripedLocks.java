@@ -0,0 +1,43 @@
+package clinic.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks selected by key hash, so work on different keys proceeds in parallel
+ * while work on the same key is serialised. Several keys are always locked in stripe order,
+ * which keeps multi-key callers free of lock-ordering deadlocks.
+ */
+final class StripedLocks {
+    private final ReentrantLock[] stripes;
+
+    StripedLocks(int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    List<ReentrantLock> lockAll(Collection<String> keys) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String key : keys) {
+            indexes.add(Math.floorMod(key.hashCode(), stripes.length));
+        }
+        List<ReentrantLock> acquired = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            ReentrantLock lock = stripes[index];
+            lock.lock();
+            acquired.add(lock);
+        }
+        return acquired;
+    }
+
+    static void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package clinic.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structured form of a doctor's free-text schedule such as "周一至周五 09:00-17:00" or
+ * "周一周三周五 14:00-18:00". Working hours are kept as one bitmap per weekday, one bit per slot.
+ */
+final class WeeklySchedule {
+    static final int SLOT_MINUTES = 30;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private static final String DAY_CHARS = "一二三四五六日天";
+    private static final Pattern TOKEN = Pattern.compile(
+        "(?:周|星期)?([" + DAY_CHARS + "])\\s*(?:至|到|-|~|－)\\s*(?:周|星期)?([" + DAY_CHARS + "])"
+            + "|(?:周|星期)([" + DAY_CHARS + "])"
+            + "|(?<=[、,，])\\s*([" + DAY_CHARS + "])"
+            + "|(每天|每日|工作日|周末)"
+            + "|(\\d{1,2})[:：](\\d{2})\\s*(?:-|~|－|至|到)\\s*(\\d{1,2})[:：](\\d{2})"
+    );
+
+    private final long[] workingSlots = new long[7];
+
+    private WeeklySchedule() {
+    }
+
+    static WeeklySchedule parse(String text) {
+        WeeklySchedule schedule = new WeeklySchedule();
+        if (text == null || text.isBlank()) {
+            return schedule;
+        }
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        boolean lastWasTime = false;
+        Matcher matcher = TOKEN.matcher(text);
+        while (matcher.find()) {
+            if (matcher.group(6) != null) {
+                int start = toMinutes(matcher.group(6), matcher.group(7));
+                int end = toMinutes(matcher.group(8), matcher.group(9));
+                if (start >= 0 && end > start) {
+                    for (DayOfWeek day : days.isEmpty() ? EnumSet.allOf(DayOfWeek.class) : days) {
+                        schedule.markWorking(day, start, end);
+                    }
+                }
+                lastWasTime = true;
+                continue;
+            }
+            if (lastWasTime) {
+                days.clear();
+                lastWasTime = false;
+            }
+            if (matcher.group(1) != null) {
+                int from = dayIndex(matcher.group(1));
+                int to = dayIndex(matcher.group(2));
+                for (int i = from; ; i = i % 7 + 1) {
+                    days.add(DayOfWeek.of(i));
+                    if (i == to) {
+                        break;
+                    }
+                }
+            } else if (matcher.group(3) != null || matcher.group(4) != null) {
+                days.add(DayOfWeek.of(dayIndex(matcher.group(3) != null ? matcher.group(3) : matcher.group(4))));
+            } else {
+                String keyword = matcher.group(5);
+                if ("工作日".equals(keyword)) {
+                    days.addAll(EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY));
+                } else if ("周末".equals(keyword)) {
+                    days.addAll(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+                } else {
+                    days.addAll(EnumSet.allOf(DayOfWeek.class));
+                }
+            }
+        }
+        return schedule;
+    }
+
+    long workingSlots(DayOfWeek day) {
+        return workingSlots[day.getValue() - 1];
+    }
+
+    boolean isEmpty() {
+        for (long slots : workingSlots) {
+            if (slots != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int slotOf(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / SLOT_MINUTES;
+    }
+
+    static LocalTime timeOf(int slot) {
+        return LocalTime.of(0, 0).plusMinutes((long) slot * SLOT_MINUTES);
+    }
+
+    /**
+     * Bits for every slot that overlaps the minute range [startMinute, endMinute) of a day.
+     */
+    static long slotsCovering(int startMinute, int endMinute) {
+        int first = Math.max(0, startMinute / SLOT_MINUTES);
+        int last = Math.min(SLOTS_PER_DAY, (endMinute + SLOT_MINUTES - 1) / SLOT_MINUTES);
+        return rangeMask(first, last);
+    }
+
+    private void markWorking(DayOfWeek day, int startMinute, int endMinute) {
+        int first = (startMinute + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        int last = Math.min(SLOTS_PER_DAY, endMinute / SLOT_MINUTES);
+        workingSlots[day.getValue() - 1] |= rangeMask(first, last);
+    }
+
+    private static long rangeMask(int first, int last) {
+        if (last <= first) {
+            return 0L;
+        }
+        long upper = last >= Long.SIZE ? -1L : (1L << last) - 1;
+        return upper & ~((1L << first) - 1);
+    }
+
+    private static int toMinutes(String hour, String minute) {
+        int h = Integer.parseInt(hour);
+        int m = Integer.parseInt(minute);
+        if (h > 24 || m > 59 || (h == 24 && m > 0)) {
+            return -1;
+        }
+        return h * 60 + m;
+    }
+
+    private static int dayIndex(String day) {
+        int index = DAY_CHARS.indexOf(day);
+        return index >= 6 ? 7 : index + 1;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 
 public class WorkProgressService {
     private final WorkProgressRepository workProgressRepository;
+    private final PatientDataListeners patientDataListeners = new PatientDataListeners();
 
     public WorkProgressService(WorkProgressRepository workProgressRepository) {
         this.workProgressRepository = workProgressRepository;
@@ -33,14 +34,27 @@ public class WorkProgressService {
             ownerDoctorId
         );
         workProgressRepository.save(progress);
+        patientDataListeners.fire(progress.getPatientId());
         return progress;
     }
 
     public void updateProgress(WorkProgress progress) throws IOException {
-        workProgressRepository.save(progress);
+        WorkProgress previous = workProgressRepository.save(progress);
+        patientDataListeners.fire(previous == null ? null : previous.getPatientId(), progress.getPatientId());
     }
 
     public void deleteProgress(String id) throws IOException {
-        workProgressRepository.deleteById(id);
+        WorkProgress removed = workProgressRepository.deleteById(id);
+        if (removed != null) {
+            patientDataListeners.fire(removed.getPatientId());
+        }
+    }
+
+    public void addPatientDataListener(PatientDataListener listener) {
+        patientDataListeners.add(listener);
+    }
+
+    public void removePatientDataListener(PatientDataListener listener) {
+        patientDataListeners.remove(listener);
     }
 }
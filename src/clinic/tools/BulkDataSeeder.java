@@ -4,8 +4,10 @@ import clinic.AppContext;
 import clinic.model.Appointment;
 import clinic.model.Doctor;
 import clinic.model.ExpertSession;
+import clinic.model.Medicine;
 import clinic.model.Patient;
 import clinic.model.User;
+import clinic.persistence.CsvDataStore;
 import clinic.service.AppointmentService;
 import clinic.service.AuthService;
 import clinic.service.CalendarEventService;
@@ -24,6 +26,7 @@ import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -41,6 +44,7 @@ public final class BulkDataSeeder {
     private static final String PATIENT_USERNAME_PREFIX = "patient_auto_";
     private static final String DOCTOR_USERNAME_PREFIX = "doctor_auto_";
     private static final String DEFAULT_PASSWORD = "clinic123";
+    private static final long WRITE_BEHIND_INTERVAL_MS = 500;
 
     private final AppContext context;
     private final Random random = new Random(20251101L);
@@ -51,8 +55,13 @@ public final class BulkDataSeeder {
 
     public static void main(String[] args) throws IOException {
         Path dataDir = Path.of(args.length > 0 ? args[0] : "data");
-        BulkDataSeeder seeder = new BulkDataSeeder(new AppContext(dataDir));
-        seeder.seedAll();
+        CsvDataStore.enableWriteBehind(WRITE_BEHIND_INTERVAL_MS);
+        try {
+            BulkDataSeeder seeder = new BulkDataSeeder(new AppContext(dataDir));
+            seeder.seedAll();
+        } finally {
+            CsvDataStore.disableWriteBehind();
+        }
         System.out.println("Bulk data seed completed.");
     }
 
@@ -165,11 +174,11 @@ public final class BulkDataSeeder {
     private LocalDateTime findAvailableSlot(Set<LocalDateTime> occupied) {
         LocalDate baseDate = LocalDate.now().plusDays(random.nextInt(14));
         int hour = 8 + random.nextInt(8);
-        int minute = (random.nextInt(4)) * 15;
+        int minute = random.nextInt(2) * Appointment.DEFAULT_DURATION_MINUTES;
         LocalDateTime candidate = LocalDateTime.of(baseDate, LocalTime.of(hour, minute));
         int safety = 0;
         while (occupied.contains(candidate) && safety < 20) {
-            candidate = candidate.plusMinutes(15);
+            candidate = candidate.plusMinutes(Appointment.DEFAULT_DURATION_MINUTES);
             safety++;
         }
         occupied.add(candidate);
@@ -338,17 +347,16 @@ public final class BulkDataSeeder {
     private void ensureMedicines() throws IOException {
         PharmacyService pharmacyService = context.getPharmacyService();
         int count = pharmacyService.listMedicines().size();
-        int index = count;
-        while (count < TARGET_COUNT) {
-            index++;
+        List<Medicine> batch = new ArrayList<>();
+        for (int index = count + 1; count + batch.size() < TARGET_COUNT; index++) {
             String name = "复方制剂" + index;
             String spec = (index % 2 == 0 ? "片剂" : "针剂") + ", 0." + (index % 5 + 1) + "g";
             int stock = 100 + (index * 7) % 200;
             String unit = index % 2 == 0 ? "盒" : "支";
             LocalDate expiry = LocalDate.now().plusMonths(6 + index % 18);
-            pharmacyService.addMedicine(name, spec, stock, unit, expiry);
-            count = pharmacyService.listMedicines().size();
+            batch.add(new Medicine(CsvDataStore.randomId(), name, spec, stock, unit, expiry));
         }
+        pharmacyService.addMedicines(batch);
     }
 
     private void ensureMeetingMinutes() throws IOException {
@@ -0,0 +1,258 @@
+package clinic.tools;
+
+import clinic.AppContext;
+import clinic.model.AuditLog;
+import clinic.model.Consultation;
+import clinic.model.Doctor;
+import clinic.model.Medicine;
+import clinic.model.Payment;
+import clinic.persistence.CsvDataStore;
+import clinic.persistence.PaymentRepository;
+import clinic.persistence.StockCheckpointRepository;
+import clinic.persistence.StockMovementRepository;
+import clinic.service.AuditService;
+import clinic.service.InventoryService;
+import clinic.service.InsightService;
+import clinic.service.InventoryService.CostingMethod;
+import clinic.service.PaymentService;
+import clinic.service.PharmacyService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Focused checks of storage and reporting features against a scratch copy of the data directory:
+ * the audit hash chain and its tamper detection, FIFO / moving-average inventory valuation, low-stock
+ * alerts raised by ledger movements, revenue summaries over undated PAID rows, and batch weekly
+ * summaries rendering exactly what the per-doctor summary renders.
+ * Each check prints one line and throws IllegalStateException on the first mismatch.
+ */
+public class FeatureVerificationTool {
+    private static final int AUDIT_ENTRIES = 1200;
+    private static final String TAMPER_MARKER = "链式校验样本";
+
+    public static void main(String[] args) throws Exception {
+        Path projectRoot = Paths.get("").toAbsolutePath();
+        Path sourceData = StorageVerificationTool.resolveDataDirectory(projectRoot);
+        Path workingData = Files.createTempDirectory("clinic-feature-test").resolve("data");
+        StorageVerificationTool.copyDirectory(sourceData, workingData);
+
+        verifyAuditChain(workingData);
+        verifyCostLayers(workingData.resolve("costing"));
+        verifyLowStockFromLedger(workingData);
+        verifyUndatedRevenue(workingData.resolve("revenue"));
+        verifyWeeklySummaries(workingData);
+        System.out.println("工作数据目录: " + workingData);
+    }
+
+    private static void verifyAuditChain(Path dataDir) throws IOException {
+        AppContext context = new AppContext(dataDir);
+        AuditService auditService = context.getAuditService();
+        AuditLog sample = null;
+        for (int i = 0; i < AUDIT_ENTRIES; i++) {
+            AuditLog log = auditService.logAction("system", "ADMIN", "VERIFY_CHAIN", "AUDIT", String.valueOf(i),
+                i == AUDIT_ENTRIES / 2 ? TAMPER_MARKER : "链式校验 " + i, "SUCCESS", "127.0.0.1");
+            if (i == AUDIT_ENTRIES / 2) {
+                sample = log;
+            }
+        }
+        auditService.flush();
+        check(auditService.verifyChain().isValid(), "审计链增量校验应通过: " + auditService.verifyChain().getMessage());
+        check(auditService.verifyFullChain().isValid(), "审计链全量校验应通过: " + auditService.verifyFullChain().getMessage());
+        List<AuditLog> all = auditService.listAll();
+        long tamperedSequence = indexOf(all, sample.getId()) + 1;
+        auditService.shutdown();
+        verifyCheckpointRemoval(dataDir, sample);
+
+        Path partition = dataDir.resolve("audit_logs").resolve(YearMonth.from(sample.getTimestamp()) + ".csv");
+        String content = Files.readString(partition, StandardCharsets.UTF_8);
+        check(content.contains(TAMPER_MARKER), "未在分区文件中找到待篡改的审计记录: " + partition);
+        Files.writeString(partition, content.replace(TAMPER_MARKER, "已被篡改"), StandardCharsets.UTF_8);
+
+        AuditService reloaded = new AppContext(dataDir).getAuditService();
+        AuditService.ChainVerification full = reloaded.verifyFullChain();
+        check(!full.isValid() && full.getFailedSequence() == tamperedSequence,
+            "审计链应在第 " + tamperedSequence + " 条发现篡改，实际: " + full.getMessage());
+        reloaded.shutdown();
+        System.out.println("✅ 审计哈希链校验通过，篡改定位到第 " + tamperedSequence + " 条");
+    }
+
+    private static void verifyCheckpointRemoval(Path dataDir, AuditLog sample) throws IOException {
+        Path checkpoints = dataDir.resolve("audit_checkpoints.csv");
+        List<String> lines = Files.readAllLines(checkpoints, StandardCharsets.UTF_8);
+        checkTampered(dataDir, "删除检查点文件", copy -> Files.delete(copy.resolve("audit_checkpoints.csv")));
+        checkTampered(dataDir, "删除末尾检查点", copy -> Files.write(copy.resolve("audit_checkpoints.csv"),
+            lines.subList(0, lines.size() - 1), StandardCharsets.UTF_8));
+        checkTampered(dataDir, "清空哈希列并删除检查点", copy -> {
+            Files.delete(copy.resolve("audit_checkpoints.csv"));
+            Path partition = copy.resolve("audit_logs").resolve(YearMonth.from(sample.getTimestamp()) + ".csv");
+            List<String> rows = Files.readAllLines(partition, StandardCharsets.UTF_8);
+            for (int i = 1; i < rows.size(); i++) {
+                rows.set(i, rows.get(i).substring(0, rows.get(i).lastIndexOf('|') + 1));
+            }
+            Files.write(partition, rows, StandardCharsets.UTF_8);
+        });
+    }
+
+    private interface Tamper {
+        void apply(Path dataDir) throws IOException;
+    }
+
+    private static void checkTampered(Path dataDir, String label, Tamper tamper) throws IOException {
+        Path copy = Files.createTempDirectory("clinic-audit-tamper").resolve("data");
+        StorageVerificationTool.copyDirectory(dataDir, copy);
+        tamper.apply(copy);
+        AuditService auditService = new AppContext(copy).getAuditService();
+        AuditService.ChainVerification quick = auditService.verifyChain();
+        AuditService.ChainVerification full = auditService.verifyFullChain();
+        auditService.shutdown();
+        check(!quick.isValid() && !full.isValid(), label + "后审计链校验应失败，实际: " + quick.getMessage() + " / " + full.getMessage());
+    }
+
+    private static void verifyCostLayers(Path directory) throws IOException {
+        checkValuation(directory.resolve("fifo"), CostingMethod.FIFO, "80.00", "30.00");
+        checkValuation(directory.resolve("average"), CostingMethod.MOVING_AVERAGE, "82.50", "27.50");
+        System.out.println("✅ 先进先出与移动加权平均估值校验通过");
+    }
+
+    private static void checkValuation(Path directory, CostingMethod method, String expectedCost, String expectedValue)
+        throws IOException {
+        Files.createDirectories(directory);
+        StockMovementRepository movements = new StockMovementRepository(directory.resolve("stock_movements.csv"));
+        StockCheckpointRepository checkpoints = new StockCheckpointRepository(directory.resolve("stock_checkpoints.csv"));
+        InventoryService inventory = new InventoryService(movements, checkpoints, method);
+        String medicineId = "verify-" + method.name().toLowerCase(Locale.ROOT);
+
+        inventory.recordInbound(medicineId, 10, new BigDecimal("5.00"), "VERIFICATION", null, "system", "第一批");
+        inventory.recordInbound(medicineId, 10, new BigDecimal("6.00"), "VERIFICATION", null, "system", "第二批");
+        BigDecimal cost = inventory.recordOutbound(medicineId, 15, null, "VERIFICATION", null, "system", "出库")
+            .getTotalCost().negate();
+        checkAmount(cost, expectedCost, method + " 出库成本");
+        checkAmount(inventory.calculateInventoryValue(medicineId), expectedValue, method + " 剩余估值");
+        checkLedger(inventory, medicineId, method + " 出库后");
+
+        inventory.recordOutbound(medicineId, 8, null, "VERIFICATION", null, "system", "超量出库");
+        checkLedger(inventory, medicineId, method + " 负库存");
+        inventory.recordInbound(medicineId, 3, new BigDecimal("7.00"), "VERIFICATION", null, "system", "补货冲抵欠量");
+        checkLedger(inventory, medicineId, method + " 冲抵欠量");
+        inventory.recordInbound(medicineId, 6, new BigDecimal("6.50"), "VERIFICATION", null, "system", "补货");
+        checkLedger(inventory, medicineId, method + " 补货");
+        inventory.createCheckpoint();
+        inventory.recordOutbound(medicineId, 2, null, "VERIFICATION", null, "system", "检查点后出库");
+
+        InventoryService restored = new InventoryService(movements, checkpoints, method);
+        checkAmount(restored.calculateInventoryValue(medicineId), inventory.calculateInventoryValue(medicineId).toPlainString(),
+            method + " 从检查点恢复的估值");
+        checkLedger(restored, medicineId, method + " 从检查点恢复");
+    }
+
+    private static void verifyLowStockFromLedger(Path dataDir) throws IOException {
+        AppContext context = new AppContext(dataDir);
+        PharmacyService pharmacy = context.getPharmacyService();
+        InventoryService inventory = context.getInventoryService();
+        Medicine medicine = pharmacy.addMedicine("低库存校验药品", "10mg", 0, "盒", LocalDate.now().plusYears(1));
+        pharmacy.setLowStockThreshold(medicine.getId(), 5);
+        List<String> events = new ArrayList<>();
+        pharmacy.addLowStockListener(new PharmacyService.LowStockListener() {
+            @Override
+            public void onLowStock(Medicine low, int available, int threshold) {
+                events.add("LOW:" + available);
+            }
+
+            @Override
+            public void onRestocked(Medicine restocked, int available, int threshold) {
+                events.add("RESTOCKED:" + available);
+            }
+        });
+        inventory.recordInbound(medicine.getId(), 8, new BigDecimal("2.00"), "VERIFICATION", null, "system", "入库");
+        inventory.recordOutbound(medicine.getId(), 4, null, "VERIFICATION", null, "system", "出库");
+        inventory.recordAdjustment(medicine.getId(), 3, null, "盘盈", "system");
+        check(events.equals(List.of("RESTOCKED:8", "LOW:4", "RESTOCKED:7")),
+            "库存流水应触发低库存与补货提醒，实际: " + events);
+        context.getAuditService().shutdown();
+        System.out.println("✅ 库存流水触发低库存提醒校验通过");
+    }
+
+    private static void verifyUndatedRevenue(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        PaymentRepository repository = new PaymentRepository(directory.resolve("payments.csv"));
+        LocalDateTime paidAt = LocalDateTime.now().withNano(0);
+        repository.save(new Payment(CsvDataStore.randomId(), "verify-patient", Payment.RelatedType.OTHER, null,
+            new BigDecimal("100.00"), "CNY", "CASH", Payment.Status.PAID, null, paidAt, paidAt));
+        Payment undated = new Payment(CsvDataStore.randomId(), "verify-patient", Payment.RelatedType.OTHER, null,
+            new BigDecimal("50.00"), "CNY", "CASH", Payment.Status.PAID, null, null, null);
+        repository.save(undated);
+
+        PaymentService payments = new PaymentService(repository);
+        checkAmount(payments.getTotalByStatus(Payment.Status.PAID), "150.00", "已支付合计（含无时间记录）");
+        check(payments.getCountByStatus(Payment.Status.PAID) == 2, "已支付笔数应为 2，实际: " + payments.getCountByStatus(Payment.Status.PAID));
+        checkAmount(payments.calculateRevenue(null, null), "100.00", "按时间统计的收入");
+        checkAmount(payments.listDailyRevenue(null, null).values().stream().reduce(BigDecimal.ZERO, BigDecimal::add),
+            "100.00", "按日统计的收入");
+        payments.markFailed(undated.getId());
+        checkAmount(payments.getTotalByStatus(Payment.Status.PAID), "100.00", "无时间记录改为失败后的已支付合计");
+        checkAmount(payments.calculateRevenue(null, null), "100.00", "无时间记录改为失败后的收入");
+        System.out.println("✅ 缺少支付与创建时间的已支付记录不影响收入统计");
+    }
+
+    private static void verifyWeeklySummaries(Path dataDir) throws IOException {
+        AppContext context = new AppContext(dataDir);
+        InsightService insightService = context.getInsightService();
+        LocalDate latest = context.getConsultationService().listConsultations().stream()
+            .map(Consultation::getCreatedAt)
+            .filter(Objects::nonNull)
+            .map(LocalDateTime::toLocalDate)
+            .max(LocalDate::compareTo)
+            .orElse(LocalDate.now());
+        int compared = 0;
+        for (LocalDate reference : List.of(LocalDate.now(), latest)) {
+            Map<String, String> batch = insightService.buildWeeklySummaries(reference);
+            List<Doctor> doctors = context.getDoctorService().listDoctors();
+            check(batch.size() == doctors.size(), "批量周报数量应为 " + doctors.size() + "，实际: " + batch.size());
+            for (Doctor doctor : doctors) {
+                String single = insightService.buildDoctorWeeklySummary(doctor.getId(), reference);
+                check(single.equals(batch.get(doctor.getId())),
+                    "医生 " + doctor.getName() + " 截至 " + reference + " 的批量周报与单独生成的不一致");
+                compared++;
+            }
+        }
+        context.getAuditService().shutdown();
+        System.out.println("✅ 批量周报与逐个生成一致，共比对 " + compared + " 份");
+    }
+
+    private static void checkLedger(InventoryService inventory, String medicineId, String label) throws IOException {
+        checkAmount(inventory.calculateInventoryValue(medicineId), inventory.getBalance(medicineId).getValue().toPlainString(),
+            label + "估值与流水金额合计");
+    }
+
+    private static void checkAmount(BigDecimal actual, String expected, String label) {
+        check(actual.compareTo(new BigDecimal(expected)) == 0, label + "应为 " + expected + "，实际: " + actual);
+    }
+
+    private static int indexOf(List<AuditLog> logs, String id) {
+        for (int i = 0; i < logs.size(); i++) {
+            if (logs.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("未找到审计记录: " + id);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package clinic.tools;
+
+import clinic.AppContext;
+import clinic.model.StockMovement.MovementType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Exports the closed finance history (payments, insurance claims, stock movements) to columnar archives
+ * under {@code archive/} and prints the totals read back from them.
+ * Usage: FinanceArchiveExporter [dataDir] [closedBeforeMonth]; rows dated before the first day of
+ * closedBeforeMonth (default: the current month) are archived, later rows stay in the live tables only.
+ */
+public final class FinanceArchiveExporter {
+    private FinanceArchiveExporter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Path.of(args.length > 0 ? args[0] : "data");
+        YearMonth month = args.length > 1 ? YearMonth.parse(args[1]) : YearMonth.now();
+        LocalDateTime closedBefore = month.atDay(1).atStartOfDay();
+        AppContext context = new AppContext(dataDir);
+        try {
+            context.getPaymentService().exportColumnarArchive(closedBefore);
+            context.getInsuranceClaimService().exportColumnarArchive(closedBefore);
+            Path target = context.getInventoryService().exportColumnarArchive(closedBefore);
+            BigDecimal revenue = context.getPaymentService().calculateArchivedRevenue(null, null);
+            BigDecimal approved = context.getInsuranceClaimService().sumArchivedApprovedAmount(null, null);
+            BigDecimal outbound = context.getInventoryService().sumArchivedCost(MovementType.OUTBOUND, null, null);
+            System.out.println("已归档 " + month + " 之前的财务历史到 " + target.getParent().toAbsolutePath());
+            System.out.println("归档收入: " + revenue + "，医保核准: " + approved + "，出库成本: " + outbound.negate());
+        } finally {
+            context.getAuditService().shutdown();
+        }
+    }
+}
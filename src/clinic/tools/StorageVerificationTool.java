@@ -7,6 +7,7 @@ import clinic.model.Patient;
 import clinic.model.Payment;
 import clinic.model.StockMovement;
 import clinic.model.InsuranceClaim;
+import clinic.persistence.CsvDataStore;
 import clinic.service.AppointmentService;
 import clinic.service.AuditService;
 import clinic.service.InsuranceClaimService;
@@ -27,6 +28,8 @@ import java.util.List;
 import java.util.Objects;
 
 public class StorageVerificationTool {
+    private static final long WRITE_BEHIND_INTERVAL_MS = 500;
+
     public static void main(String[] args) throws Exception {
         Path projectRoot = Paths.get("").toAbsolutePath();
         Path sourceData = resolveDataDirectory(projectRoot);
@@ -35,83 +38,94 @@ public class StorageVerificationTool {
         Path workingData = tempRoot.resolve("data");
         copyDirectory(sourceData, workingData);
 
-        AppContext context = new AppContext(workingData);
-        PatientService patientService = context.getPatientService();
-        PharmacyService pharmacyService = context.getPharmacyService();
-        AppointmentService appointmentService = context.getAppointmentService();
-        PaymentService paymentService = context.getPaymentService();
-        InsuranceClaimService insuranceClaimService = context.getInsuranceClaimService();
-        InventoryService inventoryService = context.getInventoryService();
-        AuditService auditService = context.getAuditService();
-
-        Patient patient = patientService.createPatient(
-            "验收患者",
-            "FEMALE",
-            LocalDate.now().minusYears(30),
-            "13900001111",
-            "测试地址",
-            "家属 13900002222",
-            "自动化存储验证"
-        );
-
-        Medicine medicine = pharmacyService.addMedicine(
-            "存储验证药品",
-            "500mg",
-            0,
-            "盒",
-            LocalDate.now().plusYears(2)
-        );
-
-        Appointment appointment = appointmentService.createAppointment(
-            patient.getId(),
-            context.getDoctorService().listDoctors().stream()
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("医生列表为空，无法验证"))
-                .getId(),
-            LocalDateTime.now().plusDays(1),
-            "自动测试预约"
-        );
-
-        Payment payment = paymentService.createPayment(
-            patient.getId(),
-            Payment.RelatedType.APPOINTMENT,
-            appointment.getId(),
-            new BigDecimal("188.00"),
-            "CNY",
-            "CREDIT_CARD"
-        );
-        paymentService.markPaid(payment.getId());
-
-        InsuranceClaim claim = insuranceClaimService.submitClaim(
-            payment.getId(),
-            "PUBLIC",
-            new BigDecimal("0.8"),
-            new BigDecimal("150.40"),
-            "自动测试理赔"
-        );
-        insuranceClaimService.approve(claim.getId(), new BigDecimal("150.40"), "审核通过");
-
-        inventoryService.recordInbound(
-            medicine.getId(),
-            25,
-            new BigDecimal("12.50"),
-            "VERIFICATION",
-            appointment.getId(),
-            "system",
-            "自动测试入库"
-        );
-
-        auditService.logAction(
-            "system",
-            "ADMIN",
-            "VERIFY_STORAGE",
-            "APPOINTMENT",
-            appointment.getId(),
-            "验证流程写入",
-            "SUCCESS",
-            "127.0.0.1"
-        );
-
+        Patient patient;
+        Medicine medicine;
+        Appointment appointment;
+        Payment payment;
+        InsuranceClaim claim;
+        CsvDataStore.enableWriteBehind(WRITE_BEHIND_INTERVAL_MS);
+        try {
+            AppContext context = new AppContext(workingData);
+            PatientService patientService = context.getPatientService();
+            PharmacyService pharmacyService = context.getPharmacyService();
+            AppointmentService appointmentService = context.getAppointmentService();
+            PaymentService paymentService = context.getPaymentService();
+            InsuranceClaimService insuranceClaimService = context.getInsuranceClaimService();
+            InventoryService inventoryService = context.getInventoryService();
+            AuditService auditService = context.getAuditService();
+
+            patient = patientService.createPatient(
+                "验收患者",
+                "FEMALE",
+                LocalDate.now().minusYears(30),
+                "13900001111",
+                "测试地址",
+                "家属 13900002222",
+                "自动化存储验证"
+            );
+
+            medicine = pharmacyService.addMedicine(
+                "存储验证药品",
+                "500mg",
+                0,
+                "盒",
+                LocalDate.now().plusYears(2)
+            );
+
+            appointment = appointmentService.createAppointment(
+                patient.getId(),
+                context.getDoctorService().listDoctors().stream()
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("医生列表为空，无法验证"))
+                    .getId(),
+                LocalDateTime.now().plusDays(1),
+                "自动测试预约"
+            );
+
+            payment = paymentService.createPayment(
+                patient.getId(),
+                Payment.RelatedType.APPOINTMENT,
+                appointment.getId(),
+                new BigDecimal("188.00"),
+                "CNY",
+                "CREDIT_CARD"
+            );
+            paymentService.markPaid(payment.getId());
+
+            claim = insuranceClaimService.submitClaim(
+                payment.getId(),
+                "PUBLIC",
+                new BigDecimal("0.8"),
+                new BigDecimal("150.40"),
+                "自动测试理赔"
+            );
+            insuranceClaimService.approve(claim.getId(), new BigDecimal("150.40"), "审核通过");
+
+            inventoryService.recordInbound(
+                medicine.getId(),
+                25,
+                new BigDecimal("12.50"),
+                "VERIFICATION",
+                appointment.getId(),
+                "system",
+                "自动测试入库"
+            );
+
+            auditService.logAction(
+                "system",
+                "ADMIN",
+                "VERIFY_STORAGE",
+                "APPOINTMENT",
+                appointment.getId(),
+                "验证流程写入",
+                "SUCCESS",
+                "127.0.0.1"
+            );
+
+            auditService.flush();
+        } finally {
+            CsvDataStore.disableWriteBehind();
+        }
         AppContext reloadedContext = new AppContext(workingData);
 
         boolean patientPersisted = reloadedContext.getPatientService().listPatients().stream()
@@ -152,7 +166,7 @@ public class StorageVerificationTool {
             movements.isEmpty() ? 0.0 : movements.get(movements.size() - 1).getUnitCost());
     }
 
-    private static void copyDirectory(Path source, Path target) throws IOException {
+    static void copyDirectory(Path source, Path target) throws IOException {
         Files.createDirectories(target);
         try (var paths = Files.walk(source)) {
             paths.forEach(path -> {
@@ -170,7 +184,7 @@ public class StorageVerificationTool {
         }
     }
 
-    private static Path resolveDataDirectory(Path start) {
+    static Path resolveDataDirectory(Path start) {
         Path candidate = start.resolve("data");
         if (Files.isDirectory(candidate)) {
             return candidate;
@@ -0,0 +1,33 @@
+package clinic.tools;
+
+import clinic.AppContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Writes the weekly summary of every doctor in one batch run.
+ * Usage: WeeklySummaryExporter [dataDir] [outputDir] [endDate]; the week ends on endDate (default today).
+ */
+public final class WeeklySummaryExporter {
+    private WeeklySummaryExporter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Path.of(args.length > 0 ? args[0] : "data");
+        Path outputDir = args.length > 1 ? Path.of(args[1]) : dataDir.resolve("reports");
+        LocalDate end = args.length > 2 ? LocalDate.parse(args[2]) : LocalDate.now();
+        AppContext context = new AppContext(dataDir);
+        try {
+            long startedAt = System.nanoTime();
+            Map<String, Path> files = context.getInsightService().exportWeeklySummaries(end, outputDir);
+            long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+            System.out.println("已生成 " + files.size() + " 份医生周报，输出目录: " + outputDir.toAbsolutePath()
+                + "，耗时 " + elapsedMillis + " 毫秒");
+        } finally {
+            context.getAuditService().shutdown();
+        }
+    }
+}
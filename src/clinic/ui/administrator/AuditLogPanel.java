@@ -2,6 +2,7 @@ package clinic.ui.administrator;
 
 import clinic.AppContext;
 import clinic.model.AuditLog;
+import clinic.service.AuditService;
 import clinic.ui.Refreshable;
 import clinic.ui.common.TableUtils;
 import clinic.ui.common.UIUtils;
@@ -17,15 +18,25 @@ import javax.swing.JTextField;
 import javax.swing.table.DefaultTableModel;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
 
 public class AuditLogPanel extends JPanel implements Refreshable {
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int MAX_ROWS = 2000;
 
     private final AppContext context;
     private final DefaultTableModel tableModel;
     private final JTable auditTable;
+    private final JTextField keywordField = new JTextField(14);
+    private final JTextField fromField = new JTextField(8);
+    private final JTextField toField = new JTextField(8);
+    private final JLabel resultLabel = new JLabel();
 
     public AuditLogPanel(AppContext context) {
         this.context = context;
@@ -55,13 +66,21 @@ public class AuditLogPanel extends JPanel implements Refreshable {
         JPanel header = new JPanel(new FlowLayout(FlowLayout.LEFT));
         UIUtils.applyHeaderSpacing(header);
         header.add(new JLabel("审计日志"));
-        header.add(new JLabel("搜索:"));
-        JTextField filterField = new JTextField(18);
+        header.add(new JLabel("关键词:"));
+        header.add(keywordField);
+        header.add(new JLabel("日期 (YYYY-MM-DD):"));
+        header.add(fromField);
+        header.add(new JLabel("至"));
+        header.add(toField);
+        JButton searchButton = new JButton("查询");
+        searchButton.addActionListener(e -> refreshData());
+        keywordField.addActionListener(e -> refreshData());
+        header.add(searchButton);
+        header.add(new JLabel("筛选:"));
+        JTextField filterField = new JTextField(10);
         TableUtils.installSearchFilter(auditTable, filterField);
         header.add(filterField);
-        JButton refreshButton = new JButton("刷新");
-        refreshButton.addActionListener(e -> refreshData());
-        header.add(refreshButton);
+        header.add(resultLabel);
         return header;
     }
 
@@ -69,15 +88,47 @@ public class AuditLogPanel extends JPanel implements Refreshable {
         JPanel footer = new JPanel(new FlowLayout(FlowLayout.LEFT));
         footer.setBorder(BorderFactory.createTitledBorder("说明"));
         footer.add(new JLabel("系统会记录关键操作，包括支付、库存调整、理赔等，便于后续追踪审计。"));
+        JButton verifyButton = new JButton("完整性校验");
+        verifyButton.addActionListener(e -> verifyChain(false));
+        footer.add(verifyButton);
+        JButton fullVerifyButton = new JButton("全量校验");
+        fullVerifyButton.addActionListener(e -> verifyChain(true));
+        footer.add(fullVerifyButton);
         return footer;
     }
 
+    private void verifyChain(boolean full) {
+        try {
+            AuditService.ChainVerification result = full
+                ? context.getAuditService().verifyFullChain()
+                : context.getAuditService().verifyChain();
+            JOptionPane.showMessageDialog(this, result.getMessage(), "审计日志完整性",
+                result.isValid() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "校验失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     @Override
     public void refreshData() {
         tableModel.setRowCount(0);
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            from = fromField.getText().isBlank() ? null : LocalDate.parse(fromField.getText().trim()).atStartOfDay();
+            to = toField.getText().isBlank() ? null : LocalDate.parse(toField.getText().trim()).atTime(LocalTime.MAX);
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "日期格式应为 YYYY-MM-DD", "提示", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
         try {
-            context.getAuditService().listAll().stream()
-                .sorted(Comparator.comparing(AuditLog::getTimestamp).reversed())
+            List<AuditLog> logs = context.getAuditService().search(keywordField.getText(), from, to);
+            resultLabel.setText(logs.size() > MAX_ROWS
+                ? "共 " + logs.size() + " 条，显示最近 " + MAX_ROWS + " 条"
+                : "共 " + logs.size() + " 条");
+            Collections.reverse(logs);
+            logs.stream()
+                .limit(MAX_ROWS)
                 .forEach(log -> tableModel.addRow(new Object[]{
                     log.getId(),
                     log.getUserId(),
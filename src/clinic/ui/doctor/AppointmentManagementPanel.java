@@ -166,6 +166,8 @@ public class AppointmentManagementPanel extends JPanel implements Refreshable {
             try {
                 context.getAppointmentService().updateStatus(appointmentId, status);
                 refreshData();
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "提示", JOptionPane.WARNING_MESSAGE);
             } catch (IOException ex) {
                 JOptionPane.showMessageDialog(this, "更新失败:" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
             }
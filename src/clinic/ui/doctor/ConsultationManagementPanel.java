@@ -257,7 +257,12 @@ public class ConsultationManagementPanel extends JPanel implements Refreshable {
                     return;
                 }
                 String medicineId = medicines.get(medicineCombo.getSelectedIndex()).getId();
-                context.getPharmacyService().createPrescription(consultationId, medicineId, quantity, usageField.getText().trim());
+                try {
+                    context.getPharmacyService().createPrescription(consultationId, medicineId, quantity, usageField.getText().trim());
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "提示", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
                 JOptionPane.showMessageDialog(this, "处方已生成", "成功", JOptionPane.INFORMATION_MESSAGE);
             }
         } catch (IOException ex) {
@@ -4,6 +4,7 @@ import clinic.AppContext;
 import clinic.model.InsuranceClaim;
 import clinic.model.Payment;
 import clinic.model.User;
+import clinic.service.FinanceViewService;
 import clinic.service.InsuranceClaimService;
 import clinic.service.PaymentService;
 import clinic.ui.Refreshable;
@@ -21,9 +22,11 @@ import javax.swing.JSplitPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.table.DefaultTableModel;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -43,6 +46,8 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
     private final JLabel pendingAmountLabel = new JLabel("待支付：0.00");
     private final JLabel paidAmountLabel = new JLabel("已支付：0.00");
     private final JLabel refundAmountLabel = new JLabel("已退款：0.00");
+    private final PaymentService.PaymentListener paymentListener =
+        (before, after) -> SwingUtilities.invokeLater(this::refreshSummary);
 
     public FinanceCenterPanel(AppContext context, User operator) {
         this.context = context;
@@ -54,7 +59,7 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
         UIUtils.applyPagePadding(this);
 
         paymentModel = new DefaultTableModel(new String[]{
-            "支付编号", "患者", "关联类型", "关联编号", "金额", "币种", "方式", "状态", "理赔编号", "创建时间", "完成时间"
+            "支付编号", "患者", "关联类型", "关联编号", "金额", "币种", "方式", "状态", "理赔编号", "创建时间", "完成时间", "理赔状态", "核准金额"
         }, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -146,6 +151,8 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
         JButton approveButton = new JButton("审核通过");
         JButton rejectButton = new JButton("驳回理赔");
         JButton payoutButton = new JButton("完成打款");
+        JButton batchButton = new JButton("批量审核");
+        actions.add(batchButton);
         actions.add(approveButton);
         actions.add(rejectButton);
         actions.add(payoutButton);
@@ -154,6 +161,7 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
         approveButton.addActionListener(e -> approveClaim());
         rejectButton.addActionListener(e -> rejectClaim());
         payoutButton.addActionListener(e -> completeClaimPayout());
+        batchButton.addActionListener(e -> adjudicateSubmittedClaims());
 
         return panel;
     }
@@ -169,6 +177,18 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
         return summary;
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        paymentService.addPaymentListener(paymentListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        paymentService.removePaymentListener(paymentListener);
+        super.removeNotify();
+    }
+
     @Override
     public void refreshData() {
         refreshPayments();
@@ -178,18 +198,13 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
     private void refreshPayments() {
         paymentModel.setRowCount(0);
         try {
-            List<Payment> payments = paymentService.listAll();
-            BigDecimal pending = paymentService.sumByStatus(payments, Payment.Status.PENDING)
-                .add(paymentService.sumByStatus(payments, Payment.Status.PROCESSING));
-            BigDecimal paid = paymentService.sumByStatus(payments, Payment.Status.PAID);
-            BigDecimal refunded = paymentService.sumByStatus(payments, Payment.Status.REFUNDED);
-            pendingAmountLabel.setText("待支付：" + pending.toPlainString());
-            paidAmountLabel.setText("已支付：" + paid.toPlainString());
-            refundAmountLabel.setText("已退款：" + refunded.toPlainString());
-            for (Payment payment : payments) {
+            List<FinanceViewService.FinanceRow> rows = context.getFinanceViewService().listRows();
+            refreshSummary();
+            for (FinanceViewService.FinanceRow row : rows) {
+                Payment payment = row.getPayment();
                 paymentModel.addRow(new Object[]{
                     payment.getId(),
-                    payment.getPatientId(),
+                    row.getPatientName(),
                     payment.getRelatedType(),
                     payment.getRelatedId(),
                     payment.getAmount().toPlainString(),
@@ -198,7 +213,9 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
                     payment.getStatus(),
                     payment.getInsuranceClaimId(),
                     payment.getCreatedAt() == null ? "" : DATE_TIME_FORMATTER.format(payment.getCreatedAt()),
-                    payment.getPaidAt() == null ? "" : DATE_TIME_FORMATTER.format(payment.getPaidAt())
+                    payment.getPaidAt() == null ? "" : DATE_TIME_FORMATTER.format(payment.getPaidAt()),
+                    row.getClaimStatus() == null ? "" : row.getClaimStatus(),
+                    row.getApprovedAmount() == null ? "" : row.getApprovedAmount().toPlainString()
                 });
             }
         } catch (Exception ex) {
@@ -206,6 +223,20 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
         }
     }
 
+    private void refreshSummary() {
+        try {
+            BigDecimal pending = paymentService.getTotalByStatus(Payment.Status.PENDING)
+                .add(paymentService.getTotalByStatus(Payment.Status.PROCESSING));
+            BigDecimal paid = paymentService.getTotalByStatus(Payment.Status.PAID);
+            BigDecimal refunded = paymentService.getTotalByStatus(Payment.Status.REFUNDED);
+            pendingAmountLabel.setText("待支付：" + pending.toPlainString());
+            paidAmountLabel.setText("已支付：" + paid.toPlainString());
+            refundAmountLabel.setText("已退款：" + refunded.toPlainString());
+        } catch (IOException ex) {
+            pendingAmountLabel.setText("待支付：加载失败");
+        }
+    }
+
     private void refreshClaims() {
         claimModel.setRowCount(0);
         try {
@@ -367,7 +398,7 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
             BigDecimal amount = new BigDecimal(amountField.getText().trim());
             claimService.approve(claimId, amount, notesArea.getText());
             logAudit("CLAIM_APPROVE", "INSURANCE_CLAIM", claimId, "审核通过", "SUCCESS");
-            refreshClaims();
+            refreshData();
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "金额格式不正确", "提示", JOptionPane.WARNING_MESSAGE);
         } catch (Exception ex) {
@@ -391,12 +422,28 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
         try {
             claimService.reject(claimId, notesArea.getText());
             logAudit("CLAIM_REJECT", "INSURANCE_CLAIM", claimId, notesArea.getText(), "SUCCESS");
-            refreshClaims();
+            refreshData();
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "驳回失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    private void adjudicateSubmittedClaims() {
+        if (JOptionPane.showConfirmDialog(this, "按承保规则审核全部待审理赔？", "批量审核", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            InsuranceClaimService.AdjudicationResult result = claimService.adjudicateSubmitted();
+            String detail = "通过 " + result.getApproved().size() + " 笔，驳回 " + result.getRejected().size()
+                + " 笔，核准金额 " + result.getApprovedTotal().toPlainString();
+            logAudit("CLAIM_BATCH_ADJUDICATE", "INSURANCE_CLAIM", "", detail, "SUCCESS");
+            refreshData();
+            JOptionPane.showMessageDialog(this, detail, "批量审核", JOptionPane.INFORMATION_MESSAGE);
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "批量审核失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void completeClaimPayout() {
         String claimId = getSelectedClaimId();
         if (claimId == null) {
@@ -405,7 +452,7 @@ public class FinanceCenterPanel extends JPanel implements Refreshable {
         try {
             claimService.completePayout(claimId);
             logAudit("CLAIM_PAYOUT", "INSURANCE_CLAIM", claimId, "完成打款", "SUCCESS");
-            refreshClaims();
+            refreshData();
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "打款失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         }
@@ -3,6 +3,7 @@ package clinic.ui.doctor;
 import clinic.AppContext;
 import clinic.model.Medicine;
 import clinic.model.Prescription;
+import clinic.service.PharmacyService;
 import clinic.ui.Refreshable;
 import clinic.ui.common.TableUtils;
 import clinic.ui.common.UIUtils;
@@ -15,12 +16,15 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.table.DefaultTableModel;
 import java.awt.BorderLayout;
+import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 public class MedicineManagementPanel extends JPanel implements Refreshable {
@@ -29,13 +33,28 @@ public class MedicineManagementPanel extends JPanel implements Refreshable {
     private final DefaultTableModel prescriptionModel;
     private final JTable medicineTable;
     private final JTable prescriptionTable;
+    private final JLabel expiryLabel = new JLabel();
+    private final JLabel lowStockLabel = new JLabel();
+    private final PharmacyService.ExpiryAlertListener expiryAlertListener =
+        (medicines, daysAhead) -> SwingUtilities.invokeLater(this::refreshExpiryLabel);
+    private final PharmacyService.LowStockListener lowStockListener = new PharmacyService.LowStockListener() {
+        @Override
+        public void onLowStock(Medicine medicine, int available, int threshold) {
+            SwingUtilities.invokeLater(MedicineManagementPanel.this::refreshMedicines);
+        }
+
+        @Override
+        public void onRestocked(Medicine medicine, int available, int threshold) {
+            SwingUtilities.invokeLater(MedicineManagementPanel.this::refreshMedicines);
+        }
+    };
 
     public MedicineManagementPanel(AppContext context) {
     this.context = context;
     setLayout(new BorderLayout(10, 10));
     UIUtils.applyPagePadding(this);
 
-        medicineModel = new DefaultTableModel(new String[]{"编号", "名称", "规格", "库存", "单位", "有效期"}, 0) {
+        medicineModel = new DefaultTableModel(new String[]{"编号", "名称", "规格", "库存", "单位", "有效期", "已预留", "可用"}, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false;
@@ -65,6 +84,11 @@ public class MedicineManagementPanel extends JPanel implements Refreshable {
         JButton refreshButton = new JButton("刷新");
         refreshButton.addActionListener(e -> refreshData());
         medicineHeader.add(refreshButton);
+        JButton nearExpiryButton = new JButton("临期药品");
+        nearExpiryButton.addActionListener(e -> showNearExpiry());
+        medicineHeader.add(nearExpiryButton);
+        medicineHeader.add(expiryLabel);
+        medicineHeader.add(lowStockLabel);
         medicinePanel.add(medicineHeader, BorderLayout.NORTH);
         medicinePanel.add(new JScrollPane(medicineTable), BorderLayout.CENTER);
         JPanel medicineControls = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -103,26 +127,94 @@ public class MedicineManagementPanel extends JPanel implements Refreshable {
         refreshData();
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        context.getPharmacyService().addExpiryAlertListener(expiryAlertListener);
+        context.getPharmacyService().addLowStockListener(lowStockListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        context.getPharmacyService().removeExpiryAlertListener(expiryAlertListener);
+        context.getPharmacyService().removeLowStockListener(lowStockListener);
+        super.removeNotify();
+    }
+
     @Override
     public void refreshData() {
         refreshMedicines();
         refreshPrescriptions();
+        refreshExpiryLabel();
+    }
+
+    private void refreshExpiryLabel() {
+        try {
+            int days = context.getPharmacyService().getExpiryAlertDays();
+            int count = context.getPharmacyService().listNearExpiry(days).size();
+            expiryLabel.setText(count == 0 ? "" : "临期提醒：" + count + " 种药品将在 " + days + " 天内过期");
+        } catch (IOException ex) {
+            expiryLabel.setText("临期提醒：加载失败");
+        }
+    }
+
+    private void showNearExpiry() {
+        int days = context.getPharmacyService().getExpiryAlertDays();
+        DefaultTableModel model = new DefaultTableModel(new String[]{"名称", "规格", "库存", "单位", "有效期", "剩余天数"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        try {
+            LocalDate today = LocalDate.now();
+            for (Medicine medicine : context.getPharmacyService().listNearExpiry(days)) {
+                model.addRow(new Object[]{
+                    medicine.getName(),
+                    medicine.getSpecification(),
+                    medicine.getStock(),
+                    medicine.getUnit(),
+                    medicine.getExpiryDate(),
+                    ChronoUnit.DAYS.between(today, medicine.getExpiryDate())
+                });
+            }
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "加载临期药品失败:" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (model.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(this, days + " 天内没有临期药品", "临期药品", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(560, 260));
+        JOptionPane.showMessageDialog(this, scrollPane, days + " 天内临期药品（按有效期排序）", JOptionPane.PLAIN_MESSAGE);
     }
 
     private void refreshMedicines() {
         medicineModel.setRowCount(0);
         try {
-            List<Medicine> medicines = context.getPharmacyService().listMedicines();
+            PharmacyService pharmacyService = context.getPharmacyService();
+            List<Medicine> medicines = pharmacyService.listMedicines();
+            int lowStock = 0;
             for (Medicine medicine : medicines) {
+                if (pharmacyService.isLowStock(medicine)) {
+                    lowStock++;
+                }
                 medicineModel.addRow(new Object[]{
                     medicine.getId(),
                     medicine.getName(),
                     medicine.getSpecification(),
                     medicine.getStock(),
                     medicine.getUnit(),
-                    medicine.getExpiryDate()
+                    medicine.getExpiryDate(),
+                    pharmacyService.getReservedQuantity(medicine.getId()),
+                    pharmacyService.getAvailableStock(medicine)
                 });
             }
+            lowStockLabel.setText(lowStock == 0 ? "" : "库存预警：" + lowStock + " 种药品可用库存低于阈值");
         } catch (IOException ex) {
             JOptionPane.showMessageDialog(this, "加载药品失败:" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         }
@@ -159,6 +251,7 @@ public class MedicineManagementPanel extends JPanel implements Refreshable {
                     form.parseExpiry()
                 );
                 refreshMedicines();
+                refreshExpiryLabel();
             } catch (IllegalArgumentException ex) {
                 JOptionPane.showMessageDialog(this, ex.getMessage(), "提示", JOptionPane.WARNING_MESSAGE);
             } catch (IOException ex) {
@@ -190,6 +283,7 @@ public class MedicineManagementPanel extends JPanel implements Refreshable {
                     form.parseExpiry()
                 ));
                 refreshMedicines();
+                refreshExpiryLabel();
             } catch (IllegalArgumentException ex) {
                 JOptionPane.showMessageDialog(this, ex.getMessage(), "提示", JOptionPane.WARNING_MESSAGE);
             } catch (IOException ex) {
@@ -209,6 +303,7 @@ public class MedicineManagementPanel extends JPanel implements Refreshable {
             try {
                 context.getPharmacyService().removeMedicine(medicineModel.getValueAt(row, 0).toString());
                 refreshMedicines();
+                refreshExpiryLabel();
             } catch (IOException ex) {
                 JOptionPane.showMessageDialog(this, "删除失败:" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
             }
@@ -225,6 +320,9 @@ public class MedicineManagementPanel extends JPanel implements Refreshable {
         try {
             context.getPharmacyService().updatePrescriptionStatus(id, "DONE");
             refreshPrescriptions();
+            refreshMedicines();
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "提示", JOptionPane.WARNING_MESSAGE);
         } catch (IOException ex) {
             JOptionPane.showMessageDialog(this, "更新失败:" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         }
@@ -36,6 +36,7 @@ import java.util.stream.Collectors;
 public class PatientDepartmentBookingPanel extends JPanel implements Refreshable {
     private static final String ALL_DEPARTMENTS = "全部科室";
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int SUGGESTED_SLOTS = 8;
 
     private final AppContext context;
     private final User user;
@@ -174,12 +175,16 @@ public class PatientDepartmentBookingPanel extends JPanel implements Refreshable
         String doctorName = model.getValueAt(modelRow, 1).toString();
         String schedule = model.getValueAt(modelRow, 9).toString();
 
-        JTextField datetimeField = new JTextField(suggestAppointmentTime());
+        JComboBox<String> datetimeField = new JComboBox<>();
+        datetimeField.setEditable(true);
+        for (String suggestion : suggestAppointmentTimes(doctorId)) {
+            datetimeField.addItem(suggestion);
+        }
         JTextField notesField = new JTextField();
         Object[] message = {
             "医生: " + doctorName,
             "出诊时间: " + schedule,
-            "预约时间 (YYYY-MM-DDTHH:MM)", datetimeField,
+            "预约时间 (YYYY-MM-DDTHH:MM，已列出最近空闲时段)", datetimeField,
             "症状描述", notesField
         };
         int option = JOptionPane.showConfirmDialog(this, message, "预约挂号", JOptionPane.OK_CANCEL_OPTION);
@@ -188,7 +193,8 @@ public class PatientDepartmentBookingPanel extends JPanel implements Refreshable
         }
         LocalDateTime dateTime;
         try {
-            dateTime = LocalDateTime.parse(datetimeField.getText().trim());
+            Object selected = datetimeField.getEditor().getItem();
+            dateTime = LocalDateTime.parse(selected == null ? "" : selected.toString().trim());
         } catch (DateTimeParseException ex) {
             JOptionPane.showMessageDialog(this, "时间格式错误", "提示", JOptionPane.WARNING_MESSAGE);
             return;
@@ -239,9 +245,19 @@ public class PatientDepartmentBookingPanel extends JPanel implements Refreshable
         return String.format(Locale.ROOT, "%.1f", rating);
     }
 
-    private String suggestAppointmentTime() {
-        LocalDate date = LocalDate.now().plusDays(1);
-        return date.atTime(9, 0).toString();
+    private List<String> suggestAppointmentTimes(String doctorId) {
+        List<String> suggestions = new ArrayList<>();
+        try {
+            for (LocalDateTime slot : context.getAppointmentSlotService().nextFreeSlots(doctorId, LocalDateTime.now(), SUGGESTED_SLOTS)) {
+                suggestions.add(slot.toString());
+            }
+        } catch (Exception ignored) {
+            // fall back to the default suggestion below
+        }
+        if (suggestions.isEmpty()) {
+            suggestions.add(LocalDate.now().plusDays(1).atTime(9, 0).toString());
+        }
+        return suggestions;
     }
 
     private record AppointmentStats(long upcomingCount, LocalDateTime nextAppointment) {